@@ -0,0 +1,435 @@
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package openSess;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.text.DecimalFormat;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Vector;
+
+/**
+ * KernelBenchmark measures the throughput of the inner kernels of the
+ * solution algorithm at several instance sizes, so that the effect of
+ * a change to one of them can be judged before it is committed.
+ *
+ * Each instance is generated from a fixed seed, so all runs work on
+ * the same preferences. A kernel is first run for the warmup time,
+ * then for a number of measurement iterations of fixed length. For
+ * each kernel and size the mean throughput and its deviation over the
+ * iterations, the time per operation, the bytes allocated per operation
+ * and the garbage collections during the measurement are reported.
+ *
+ * The class lives in the package openSess to reach the package private
+ * parts of the solver. It is kept out of the release sources and is
+ * built and started from the installation directory (see BUILD):
+ *
+ *   javac -d bench/classes openSess/*.java bench/openSess/*.java
+ *   java -cp bench/classes openSess.KernelBenchmark
+ */
+public class KernelBenchmark
+{
+  private static final int SIZES[][] =
+    {
+      // persons, topics
+      {    12,  12 },
+      {   200,  20 },
+      {  2000,  60 },
+      { 10000, 200 }
+    };
+  private static final int    ROLES    = 3;
+  private static final int    SESSIONS = 4;
+  private static final long   SEED     = 4711;
+
+  private static volatile int sink;   // keeps the results of the kernels alive
+
+  private long         warmupMillis    = 1000;
+  private long         iterationMillis = 1000;
+  private int          iterations      = 5;
+  private String       only;          // null = all kernels
+  private ThreadMXBean threadBean      = ManagementFactory.getThreadMXBean();
+  private DecimalFormat rateFormat     = new DecimalFormat("#,##0.0");
+  private DecimalFormat timeFormat     = new DecimalFormat("#,##0.0");
+  private DecimalFormat byteFormat     = new DecimalFormat("#,##0");
+
+  /**
+   * A kernel of the solution algorithm, set up for one instance.
+   */
+  private static abstract class Kernel
+  {
+    String name;
+
+    Kernel(String name)
+    {
+      this.name = name;
+    }
+
+    /**
+     * Run the kernel once.
+     *
+     * @return a value derived from the result, to keep it from being
+     *         optimized away.
+     */
+    abstract int run();
+  }
+
+  /**
+   * Run the benchmarks.
+   *
+   * @param args the command line arguments:
+   *             [-warmup ms] [-time ms] [-iterations n] [-kernel name]
+   *             [-size personsxtopics].
+   */
+  public static void main(String[] args)
+  {
+    KernelBenchmark bench = new KernelBenchmark();
+    Vector          sizes = new Vector();
+
+    try
+    {
+      for (int i = 0;  i < args.length;  ++i)
+      {
+        String arg = args[i];
+
+        if (i + 1 >= args.length)
+          throw new IllegalArgumentException("missing value for " + arg);
+
+        String value = args[++i];
+
+        if (arg.equals("-warmup"))
+          bench.warmupMillis = Long.parseLong(value);
+        else if (arg.equals("-time"))
+          bench.iterationMillis = Long.parseLong(value);
+        else if (arg.equals("-iterations"))
+          bench.iterations = Integer.parseInt(value);
+        else if (arg.equals("-kernel"))
+          bench.only = value;
+        else if (arg.equals("-size"))
+        {
+          int x = value.indexOf('x');
+
+          if (x < 0)
+            throw new IllegalArgumentException("bad size " + value);
+
+          sizes.add(new int[] { Integer.parseInt(value.substring(0, x)),
+                                Integer.parseInt(value.substring(x + 1)) });
+        }
+        else
+          throw new IllegalArgumentException("unknown option " + arg);
+      }
+
+      if (bench.iterations < 1 || bench.iterationMillis < 1)
+        throw new IllegalArgumentException("nothing to measure");
+    }
+    catch (IllegalArgumentException e)
+    {
+      System.out.println(e.getMessage());
+      System.out.println("Usage: java openSess.KernelBenchmark [-warmup ms] "
+                         + "[-time ms] [-iterations n] [-kernel name] "
+                         + "[-size personsxtopics]...");
+      System.exit(2);
+    }
+
+    if (sizes.isEmpty())
+      for (int i = 0;  i < SIZES.length;  ++i)
+        sizes.add(SIZES[i]);
+
+    bench.run(sizes);
+  }
+
+  /**
+   * Run all selected kernels for each instance size.
+   *
+   * @param sizes the instance sizes (persons, topics).
+   */
+  void run(Vector sizes)
+  {
+    System.out.println("Warmup " + warmupMillis + " ms, " + iterations
+                       + " iterations of " + iterationMillis + " ms, "
+                       + ROLES + " roles, " + SESSIONS + " sessions");
+    System.out.println(pad("Kernel", -24) + pad("Size", -12)
+                       + pad("ops/s", 14) + pad("+-", 11)
+                       + pad("ns/op", 14) + pad("B/op", 12)
+                       + pad("GCs", 6) + pad("GC ms", 8));
+
+    Iterator iter = sizes.iterator();
+
+    while (iter.hasNext())
+    {
+      int     size[]  = (int[])iter.next();
+      Vector  kernels = createKernels(size[0], size[1]);
+      Iterator kIter  = kernels.iterator();
+
+      while (kIter.hasNext())
+      {
+        Kernel kernel = (Kernel)kIter.next();
+
+        if (only == null || only.equals(kernel.name))
+          measure(kernel, size[0] + "x" + size[1]);
+      }
+    }
+  }
+
+  /**
+   * Generate an instance and set up the kernels for it.
+   *
+   * @param dimPersons the number of persons.
+   * @param dimTopics  the number of topics.
+   * @return the kernels.
+   */
+  private Vector createKernels(int dimPersons, int dimTopics)
+  {
+    final Solver solver = new Solver(dimTopics, dimPersons, ROLES, SESSIONS);
+
+    solver.getPersons().setRandomPrefs(new Random(SEED), 3 * dimTopics);
+
+    final Problem problem = solver.createProblem();
+    final Topics  topics  = solver.getTopics();
+
+    topics.calcPrefs(problem);
+    topics.calcDist(problem);
+
+    // a fixed clustering: topics t with the same t / SESSIONS run in parallel
+    final int groups[] = new int[dimTopics];
+
+    for (int t = 0;  t < dimTopics;  ++t)
+      groups[t] = t / SESSIONS;
+
+    // a complete solution
+    AssignmentWorker worker = new AssignmentWorker(solver);
+
+    worker.assignPersonsToSessions(groups, 1, SEED);
+    worker.assignRolesByMatching();
+
+    final Solution solution = worker.createSolution(0);
+    Vector         kernels  = new Vector();
+
+    if (solution == null)
+      System.out.println("No valid solution for " + dimPersons + "x"
+                         + dimTopics + ", skipping the solution kernels.");
+    else
+    {
+      kernels.add(new Kernel("calculateTargetValue")
+        {
+          int run()
+          {
+            return solution.calculateTargetValue();
+          }
+        });
+      kernels.add(new Kernel("evaluate")
+        {
+          int run()
+          {
+            solution.evaluate();
+            return solution.getTargetValue();
+          }
+        });
+    }
+
+    kernels.add(new Kernel("separation")
+      {
+        int run()
+        {
+          return topics.separation(groups, SESSIONS);
+        }
+      });
+    kernels.add(new Kernel("calcDist")
+      {
+        int run()
+        {
+          topics.calcDist(problem);
+          return 1;
+        }
+      });
+
+    return kernels;
+  }
+
+  /**
+   * Measure a kernel and print a line with the results.
+   *
+   * @param kernel the kernel.
+   * @param size   the instance size for the output.
+   */
+  private void measure(Kernel kernel, String size)
+  {
+    int batch = 1;
+
+    // warmup, which also finds a batch size that runs for about a
+    // millisecond, so the clock is not read in every call
+    long end = System.currentTimeMillis() + warmupMillis;
+
+    do
+    {
+      long start = System.nanoTime();
+
+      runBatch(kernel, batch);
+
+      if (System.nanoTime() - start < 1000000 && batch < (1 << 24))
+        batch *= 2;
+    }
+    while (System.currentTimeMillis() < end);
+
+    double rate[]    = new double[iterations];
+    long   ops       = 0;
+    long   nanos     = 0;
+    long   gcCount   = gcCount();
+    long   gcMillis  = gcMillis();
+    long   allocated = allocatedBytes();
+
+    for (int i = 0;  i < iterations;  ++i)
+    {
+      long n     = 0;
+      long start = System.nanoTime();
+      long stop  = start + iterationMillis * 1000000;
+      long now;
+
+      do
+      {
+        runBatch(kernel, batch);
+        n += batch;
+        now = System.nanoTime();
+      }
+      while (now < stop);
+
+      rate[i] = n * 1e9 / (now - start);
+      ops    += n;
+      nanos  += now - start;
+    }
+
+    allocated = allocatedBytes() - allocated;
+    gcCount   = gcCount() - gcCount;
+    gcMillis  = gcMillis() - gcMillis;
+
+    double mean = 0, m2 = 0;
+
+    for (int i = 0;  i < iterations;  ++i)
+    {
+      double d = rate[i] - mean;
+
+      mean += d / (i + 1);
+      m2   += d * (rate[i] - mean);
+    }
+
+    String bytes = allocated < 0 ? "n/a"
+                                 : byteFormat.format((double)allocated / ops);
+
+    System.out.println(pad(kernel.name, -24) + pad(size, -12)
+                       + pad(rateFormat.format(mean), 14)
+                       + pad(rateFormat.format(Math.sqrt(m2 / iterations)), 11)
+                       + pad(timeFormat.format((double)nanos / ops), 14)
+                       + pad(bytes, 12)
+                       + pad(Long.toString(gcCount), 6)
+                       + pad(Long.toString(gcMillis), 8));
+  }
+
+  /**
+   * Run a kernel a number of times.
+   *
+   * @param kernel the kernel.
+   * @param count  the number of runs.
+   */
+  private static void runBatch(Kernel kernel, int count)
+  {
+    int result = 0;
+
+    for (int i = 0;  i < count;  ++i)
+      result += kernel.run();
+
+    sink = result;
+  }
+
+  /**
+   * Return the number of bytes allocated by the current thread so far,
+   * if the virtual machine supports it.
+   *
+   * @return the number of bytes, -1 if unknown.
+   */
+  private long allocatedBytes()
+  {
+    if (threadBean instanceof com.sun.management.ThreadMXBean)
+      return ((com.sun.management.ThreadMXBean)threadBean)
+               .getThreadAllocatedBytes(Thread.currentThread().getId());
+
+    return -1;
+  }
+
+  /**
+   * Return the total number of garbage collections so far.
+   *
+   * @return the number of collections.
+   */
+  private static long gcCount()
+  {
+    long     count = 0;
+    Iterator iter  = ManagementFactory.getGarbageCollectorMXBeans().iterator();
+
+    while (iter.hasNext())
+      count += Math.max(0, ((GarbageCollectorMXBean)iter.next())
+                             .getCollectionCount());
+
+    return count;
+  }
+
+  /**
+   * Return the total time spent in garbage collections so far.
+   *
+   * @return the time in milliseconds.
+   */
+  private static long gcMillis()
+  {
+    long     millis = 0;
+    Iterator iter   = ManagementFactory.getGarbageCollectorMXBeans().iterator();
+
+    while (iter.hasNext())
+      millis += Math.max(0, ((GarbageCollectorMXBean)iter.next())
+                              .getCollectionTime());
+
+    return millis;
+  }
+
+  /**
+   * Pad a string with blanks to a width.
+   *
+   * @param s     the string.
+   * @param width the width, negative to align left.
+   * @return the padded string.
+   */
+  private static String pad(String s, int width)
+  {
+    StringBuffer buf = new StringBuffer();
+    int          n   = Math.abs(width) - s.length();
+
+    if (width < 0)
+      buf.append(s);
+
+    for (int i = 0;  i < n;  ++i)
+      buf.append(' ');
+
+    if (width > 0)
+      buf.append(s);
+
+    return buf.toString();
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package openSess;
+import java.util.Random;
+
+/**
+ * Annealing decides whether a move of the person assignment search
+ * is accepted. Improvements are always accepted, a move that makes
+ * the target value worse by delta is accepted with the Metropolis
+ * probability exp(-delta/temperature).
+ *
+ * The temperature follows one of these schedules:
+ *
+ * - HILL_CLIMBING: only improvements are accepted (temperature zero).
+ * - GEOMETRIC:     the temperature falls by a constant factor with every
+ *                  move, from the start to the end temperature.
+ * - ADAPTIVE:      every 100 moves the temperature is raised or lowered,
+ *                  so that the acceptance rate follows a target rate
+ *                  that falls linearly from 50% to zero.
+ *
+ * A start temperature of zero lets the first moves calibrate it: the
+ * start temperature accepts an average uphill move with a probability
+ * of 50%. An end temperature of zero means 1/1000 of the start
+ * temperature. If a reheat limit is set, the temperature is raised again
+ * to the temperature at which the last best target value was found
+ * when this value has not been improved for that many moves.
+ */
+class Annealing
+{
+  public static final int HILL_CLIMBING = 0;
+  public static final int GEOMETRIC     = 1;
+  public static final int ADAPTIVE      = 2;
+
+  /** the names of the schedules as saved in a file */
+  public static final String SCHEDULE_NAMES[] = { "hill", "geometric", "adaptive" };
+
+  private static final int CALIBRATION  = 100;  // moves used to find the start temperature
+  private static final int WINDOW       = 100;  // moves between adaptive adjustments
+
+  private int    schedule;
+  private int    tries;
+  private int    reheatAfter;
+  private double startTemperature;
+  private double endTemperature;
+  private double temperature;
+  private double bestTemperature;  // temperature of the last new best value
+  private double cooling;
+  private int    move;
+  private int    sinceBest;
+  private int    accepted;
+  private double uphillSum;
+  private int    uphillCount;
+
+  /**
+   * Creates a new Annealing with the parameters of a Solver object.
+   *
+   * @param solver the Solver object.
+   * @param tries  the number of moves of the search.
+   */
+  Annealing(Solver solver, int tries)
+  {
+    this.schedule         = solver.getAnnealingSchedule();
+    this.startTemperature = solver.getStartTemperature();
+    this.endTemperature   = solver.getEndTemperature();
+    this.reheatAfter      = solver.getReheatAfter();
+    this.tries            = tries;
+    move        = 0;
+    sinceBest   = 0;
+    accepted    = 0;
+    uphillSum   = 0;
+    uphillCount = 0;
+
+    if (startTemperature > 0)
+      setStartTemperature(startTemperature);
+    else
+      temperature = 0;  // hill climbing until calibrated
+  }
+
+  /**
+   * Decide whether a move is accepted.
+   *
+   * @param delta the change of the target value caused by the move.
+   * @param rand  the random number generator of the search.
+   * @return true if the move is accepted.
+   */
+  boolean accept(int delta, Random rand)
+  {
+    boolean accept;
+
+    if (delta > 0 && startTemperature <= 0)
+    {
+      uphillSum += delta;
+      ++uphillCount;
+    }
+
+    if (delta <= 0)
+      accept = delta < 0 || schedule != HILL_CLIMBING;
+    else if (schedule == HILL_CLIMBING || temperature <= 0)
+      accept = false;
+    else
+      accept = rand.nextDouble() < Math.exp(-delta / temperature);
+
+    if (accept)
+      ++accepted;
+
+    return accept;
+  }
+
+  /**
+   * Advance the schedule after a move.
+   *
+   * @param newBest true if the move has produced a new best target value.
+   */
+  void next(boolean newBest)
+  {
+    ++move;
+    sinceBest = newBest ? 0 : sinceBest + 1;
+
+    if (newBest)
+      bestTemperature = temperature;
+
+    if (schedule == HILL_CLIMBING)
+      return;
+
+    if (startTemperature <= 0)
+    {
+      // still calibrating
+      if (move >= CALIBRATION && uphillCount > 0)
+        setStartTemperature(uphillSum / uphillCount / Math.log(2));
+
+      return;
+    }
+
+    if (schedule == GEOMETRIC)
+      temperature *= cooling;
+    else if (move % WINDOW == 0)
+    {
+      double targetRate = 0.5 * (tries - move) / tries;
+
+      if (accepted > targetRate * WINDOW)
+        temperature *= 0.9;
+      else
+        temperature *= 1.1;
+
+      accepted = 0;
+    }
+
+    if (reheatAfter > 0 && sinceBest >= reheatAfter)
+    {
+      temperature = Math.max(temperature, bestTemperature);
+      sinceBest = 0;
+    }
+  }
+
+  /**
+   * Return the current temperature.
+   *
+   * @return the temperature.
+   */
+  double getTemperature()
+  {
+    return temperature;
+  }
+
+  /**
+   * Set the start temperature and derive the cooling factor for the
+   * remaining moves.
+   *
+   * @param start the start temperature.
+   */
+  private void setStartTemperature(double start)
+  {
+    double end = endTemperature > 0 ? endTemperature : start / 1000;
+
+    startTemperature = start;
+    temperature      = start;
+    cooling          = Math.pow(end / start, 1.0 / Math.max(1, tries - move));
+  }
+}
@@ -0,0 +1,598 @@
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ * 
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ * 
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it 
+ * under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation; either version 2 of the License, or 
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but 
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY 
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License 
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along 
+ * with OpenSess; if not, write to the Free Software Foundation, Inc., 
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+
+package openSess;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * AssignmentWorker holds the scratch data of a single solution attempt:
+ * the assignment of persons to the sessions of a given topic clustering
+ * and the subsequent assignment of roles.
+ * The Solver uses one AssignmentWorker per thread, so that several
+ * attempts can be calculated at the same time. Persons, Topics and
+ * Roles are only read while an attempt is running.
+ */
+class AssignmentWorker
+{
+  private Solver            solver;
+  private Problem           problem;
+  private Persons           persons;     // for debug output only
+  private Topics            topics;      // for debug output only
+  private int               dimSessions;
+  private boolean           debug;
+  private Solution          solution;
+  private Solution          bestAssignment;
+  private NumberFormat      compactFormat;
+  private boolean           solved;
+  private IncrementalTarget objective;
+  private FlowAssignment    flow;
+  private RoleMatching      roleMatching;
+  private long              deadline;    // 0 = no deadline
+  private int               moves;
+  private long              hash;        // Zobrist hash of the current assignment
+  private long              bestHash;    // Zobrist hash of the best assignment
+  private int               bestTarget;  // target value of the best assignment, -1 = unknown
+  private int               capacity;    // persons per session
+  private int               members[];   // the persons of topic t at t*capacity...
+  private int               memberPos[]; // position of person p in members[] of group g
+  private int               attend[];    // topic of person p in group g at p*groups+g
+  private SolverTelemetry   telemetry;
+  
+  /**
+   * Creates a new AssignmentWorker for the Problem of a Solver object
+   * and allocates the arrays which are used in subsequent calculations.
+   * Each calculation must be set up by a call to assignPersonsToSessions().
+   * 
+   * @param solver the Solver object.
+   */
+  AssignmentWorker(Solver solver)
+  {
+    this.solver = solver;
+    problem     = solver.getProblem();
+    persons     = solver.getPersons();
+    topics      = solver.getTopics();
+    telemetry   = solver.getTelemetry();
+    dimSessions = problem.getSessionNumber();
+    allocate();
+  }
+
+  /**
+   * Return true if the worker currently holds a valid solution.
+   * 
+   * @return true if the solution is valid, false otherwise.
+   */
+	public boolean isValidSolution()
+	{
+	  return solved;
+	}
+
+  /**
+   * Set a point of time at which the annealing search is stopped,
+   * even if not all tries have been made. The best assignment found
+   * until then is used.
+   * 
+   * @param deadline the time in milliseconds (as System.currentTimeMillis()), 
+   *                 0 for no deadline.
+   */
+  void setDeadline(long deadline)
+  {
+    this.deadline = deadline;
+  }
+
+  /**
+   * Return the number of moves made by the last annealing search.
+   * 
+   * @return the number of moves.
+   */
+  int getMoves()
+  {
+    return moves;
+  }
+
+  /**
+   * Return the Zobrist hash of the person assignment found by the last
+   * call of assignPersonsToSessions(), including its topic grouping.
+   * 
+   * @return the hash value.
+   */
+  long getAssignmentHash()
+  {
+    return bestHash;
+  }
+
+  /**
+   * Return the target value of the person assignment found by the last
+   * call of assignPersonsToSessions(). It is known from the annealing
+   * search, otherwise it is calculated.
+   * 
+   * @return the target value.
+   */
+  int getTargetValue()
+  {
+    if (bestTarget < 0)
+      bestTarget = solution.calculateTargetValue();
+    
+    return bestTarget;
+  }
+
+  /**
+   * Return the mean satisfaction of the current solution after
+   * assignRolesByMatching(), without evaluating the solution
+   * (see RoleMatching.getMeanSatisfaction()).
+   * 
+   * @return the mean satisfaction.
+   */
+  double getMeanSatisfaction()
+  {
+    return roleMatching.getMeanSatisfaction();
+  }
+
+  /**
+   * Calculate the Zobrist hash of the current person assignment.
+   * 
+   * @param groups the topic grouping.
+   * @return the hash value.
+   */
+  private long assignmentHash(int groups[])
+  {
+    int  dimPersons = problem.getPersonNumber();
+    int  dimTopics  = problem.getTopicNumber();
+    long h          = Zobrist.grouping(groups);
+    
+    for (int p = 0;  p < dimPersons;  ++p)
+      for (int t = 0;  t < dimTopics;  ++t)
+        if (solution.getRole(p, t) > 0)
+          h ^= Zobrist.attendanceKey(p, t, dimTopics);
+    
+    return h;
+  }
+
+  /**
+   * Allocates the data structures for the algorithm.
+   */
+  private void allocate()
+  {
+    debug            = false;
+    this.solved      = false;
+    
+    int     dimPersons     = problem.getPersonNumber();
+    int     dimTopics      = problem.getTopicNumber();
+    
+    bestAssignment   = new Solution(solver);
+    objective        = new IncrementalTarget(problem);
+    capacity         = dimPersons / dimSessions;
+    members          = new int[dimTopics * capacity];
+    memberPos        = new int[dimPersons * (dimTopics / dimSessions)];
+    attend           = new int[dimPersons * (dimTopics / dimSessions)];
+    
+    // Prepare a number formatter
+    compactFormat = NumberFormat.getInstance();
+    compactFormat.setMinimumFractionDigits(3);
+    compactFormat.setMaximumFractionDigits(3);
+    
+    if (debug)
+    {
+      System.out
+          .println("\nPersonen und Prferenzen bei gegebener Themengruppierung:");
+      System.out.println("\n" + persons.emptyName() + ":   "
+                         + topics.toHeaderString("   "));
+      for (int p = 0;  p < dimPersons;  p++)
+      {
+        System.out.print(persons.getName(p) + ":");
+        for (int t = 0;  t < dimTopics; t++)
+        {
+          String tmp = "    " + problem.getRank(p, t);
+          System.out.print(tmp.substring(tmp.length() - 4));
+        }
+        
+        System.out.println();
+      }
+    }
+  }
+
+  /**
+   * Initialize a calculation by performing a first assignment 
+   * without specific roles. Depending on the assignment method
+   * of the Solver, the assignment is improved by simulated annealing 
+   * or calculated exactly by a FlowAssignment.
+   * 
+   * @param groups  the group of topics to work on.
+   * @param tries   the maximum number of tries.
+   * @param seed    the seed for the random number generator.
+   */
+  public void assignPersonsToSessions(int[] groups, int tries, long seed)
+  {
+    int     dimPersons     = problem.getPersonNumber();
+    int     dimTopics      = problem.getTopicNumber();
+    int     unassignedRole = problem.getRoleNumber() + 1;  // Marker for an unassigned role
+
+    // Start a new solution
+    solution = new Solution(solver);
+    
+    // Remember the topic grouping in the solution
+    for (int gr = 0;  gr < groups.length;  ++gr)
+    {
+      int groupIndex = 0;
+      
+      for (int t = 0;  t < dimTopics;  ++t)
+        if (groups[t] == gr)
+          solution.setGroupElement(gr, groupIndex++, t);
+    }
+
+    // Erase bestAssignment
+    bestAssignment.copyAssignment(solution);
+    bestTarget = -1;
+    
+    if (solver.getAssignmentMethod() == Solver.MIN_COST_FLOW)
+    {
+      // the optimal assignment for each topic group is calculated
+      // directly, there is nothing left to search for
+      if (flow == null)
+        flow = new FlowAssignment(problem);
+      
+      flow.assign(solution, unassignedRole);
+      moves    = 0;
+      bestHash = assignmentHash(groups);
+      return;
+    }
+    
+    // we generate a legal assignment as a starting point
+    for (int gr = 0; gr < dimTopics / dimSessions; gr++)
+      assignGroupByRegret(gr, unassignedRole);
+
+    int target = objective.reset(solution);
+    
+    indexMembers();
+    hash     = assignmentHash(groups);
+
+    // the start is the best assignment until a move improves it
+    int bestTargetTotal = target;
+    
+    bestAssignment.copyAssignment(solution);
+    bestHash = hash;
+
+    if (debug)
+    {
+      System.out.println("\n" + persons.emptyName() + ":  "
+                         + topics.toHeaderString(" "));
+      System.out.println(this + "target=" + target);
+    }
+
+    // again we apply simulated annealing; we try to swap people
+    // between sessions of the same group; the Annealing object
+    // decides which moves are accepted
+
+    int lastTarget = target;
+    Annealing annealing = new Annealing(solver, tries);
+    Random rand = new Random();
+    int nGroups = dimTopics / dimSessions;
+    int nAttending = capacity * dimSessions;
+    int reported = 0;     // moves reported to the telemetry
+    int accepted = 0;     // accepted and improving moves since the last report
+    int improved = 0;
+    
+    if (seed != 0)
+      rand = new Random(seed);
+
+    // with a single session per group there is nothing to swap,
+    // the start is the result
+    if (dimSessions < 2)
+      tries = 0;
+    
+    for (moves = 0;  moves < tries;  moves++)
+    {
+      if ((moves & 1023) == 1023)
+      {
+        telemetry.addMoves(moves - reported, accepted, improved, target);
+        reported = moves;
+        accepted = 0;
+        improved = 0;
+
+        // stop at the deadline or when the task is canceled (the start
+        // is the best assignment until then); a paused task waits here
+        if (solver.checkPoint()
+            || deadline > 0 && System.currentTimeMillis() >= deadline)
+          break;
+      }
+      
+      // modify constellation, later restore possible:
+      // pick an attending person (all persons below nAttending
+      // attend one topic of each group) and one of its topics ...
+      int gr = rand.nextInt(nGroups);
+      int p1 = rand.nextInt(nAttending);
+      int t1 = attend[p1*nGroups + gr];
+
+      // ... and a member of another topic of the same group
+      int n  = rand.nextInt(capacity * (dimSessions - 1));
+      int s2 = n / capacity;
+      
+      if (s2 >= solution.topicToSlot(t1))
+        ++s2;
+      
+      int t2 = solution.getGroupElement(gr, s2);
+      int p2 = members[t2*capacity + n % capacity];
+      
+      swapMembers(p1, t1, p2, t2, gr);
+      solution.setRole(p1, t1, 0);
+      solution.setRole(p1, t2, unassignedRole);
+      solution.setRole(p2, t1, unassignedRole);
+      solution.setRole(p2, t2, 0);
+
+      // calculate target value (incrementally, only the two persons
+      // involved in the swap change their rank sums)
+      lastTarget = target;
+      target = objective.swap(p1, t1, p2, t2);
+      
+      long swapKeys = Zobrist.attendanceKey(p1, t1, dimTopics) 
+                      ^ Zobrist.attendanceKey(p1, t2, dimTopics)
+                      ^ Zobrist.attendanceKey(p2, t2, dimTopics)
+                      ^ Zobrist.attendanceKey(p2, t1, dimTopics);
+      
+      hash ^= swapKeys;
+
+      if (debug)
+      {
+        System.out.println("\np1=" + p1 + " t1=" + topics.getName(t1)
+                           + "  /  p2=" + p2 + " t2=" + topics.getName(t2));
+        System.out.println(this + "target=" + target + "   (T=" 
+                           + annealing.getTemperature()
+                           + ")  (" + bestTargetTotal + ")");
+      }
+
+      boolean newBest = false;
+      
+      if (target < bestTargetTotal)
+      {
+        // check if solution is known already (i.e. it has been
+        // the result of an earlier attempt)
+        boolean known = solver.isKnownAssignment(hash);
+        
+        if (!known)
+        {
+          bestTargetTotal = target;
+          bestHash = hash;
+          newBest = true;
+          ++improved;
+          // store best result
+          bestAssignment.copyAssignment(solution);
+
+          if (debug)
+            System.out.println("BEST ASSIGNMENT");
+        }
+      }
+      
+      if (annealing.accept(target - lastTarget, rand))
+      {
+        // accept
+        ++accepted;
+        
+        if (debug)
+          System.out.println("moving.");
+      }
+      else
+      {
+        // take back
+        solution.setRole(p1, t1, unassignedRole);
+        solution.setRole(p1, t2, 0);
+        solution.setRole(p2, t1, 0);
+        solution.setRole(p2, t2, unassignedRole);
+        objective.swap(p1, t2, p2, t1);
+        swapMembers(p1, t2, p2, t1, gr);
+        hash ^= swapKeys;
+        target = lastTarget;
+        
+        if (debug)
+          System.out.println("staying.");
+      }
+      
+      annealing.next(newBest);
+    }
+
+    telemetry.addMoves(moves - reported, accepted, improved, target);
+    solution.copyAssignment(bestAssignment);
+    bestTarget = bestTargetTotal;
+
+    if (debug)
+    {
+      target = solution.calculateTargetValue();
+      System.out.println(this + "target=" + target + "  bestTargetTotal="
+                         + bestTargetTotal);
+    }
+  }
+
+  /**
+   * Build the index of session members from the current solution:
+   * the persons of each topic, and the topic of each person in each group.
+   */
+  private void indexMembers()
+  {
+    int dimPersons = problem.getPersonNumber();
+    int nGroups    = solution.getGroupNumber();
+    int load[]     = new int[problem.getTopicNumber()];
+    
+    for (int p = 0;  p < dimPersons;  ++p)
+      for (int g = 0;  g < nGroups;  ++g)
+      {
+        attend[p*nGroups + g] = -1;
+        
+        for (int s = 0;  s < dimSessions;  ++s)
+        {
+          int t = solution.getGroupElement(g, s);
+          
+          if (solution.getRole(p, t) > 0)
+          {
+            attend[p*nGroups + g]    = t;
+            memberPos[p*nGroups + g] = load[t];
+            members[t*capacity + load[t]++] = p;
+          }
+        }
+      }
+  }
+
+  /**
+   * Update the index of session members for a swap: p1 moves from
+   * topic t1 to t2, p2 moves from t2 to t1. Calling swapMembers(p1, t2, 
+   * p2, t1, gr) takes the swap back.
+   * 
+   * @param p1 the first person.
+   * @param t1 the topic the first person leaves.
+   * @param p2 the second person.
+   * @param t2 the topic the second person leaves.
+   * @param gr the group of both topics.
+   */
+  private void swapMembers(int p1, int t1, int p2, int t2, int gr)
+  {
+    int nGroups = solution.getGroupNumber();
+    int pos1    = memberPos[p1*nGroups + gr];
+    int pos2    = memberPos[p2*nGroups + gr];
+    
+    members[t1*capacity + pos1] = p2;
+    members[t2*capacity + pos2] = p1;
+    memberPos[p1*nGroups + gr]  = pos2;
+    memberPos[p2*nGroups + gr]  = pos1;
+    attend[p1*nGroups + gr]     = t2;
+    attend[p2*nGroups + gr]     = t1;
+  }
+
+  /**
+   * Assign the persons to the sessions of a topic group greedily.
+   * The persons are placed in the order of their regret, i.e. the
+   * difference between the best and the second best session that is
+   * still open, each to the best open session. So the persons who would
+   * lose most by being moved get their choice first. When a session is
+   * full, the regrets of the remaining persons are recalculated.
+   * As in the rest of the search, persons beyond 
+   * dimSessions*(dimPersons/dimSessions) are not assigned.
+   * 
+   * @param gr             the topic group.
+   * @param unassignedRole the marker for an assigned person without role.
+   */
+  private void assignGroupByRegret(int gr, int unassignedRole)
+  {
+    int  capacity = problem.getPersonNumber() / dimSessions;
+    int  nPersons = capacity * dimSessions;
+    int  topic[]  = new int[dimSessions];
+    int  load[]   = new int[dimSessions];
+    long order[]  = new long[nPersons];
+    
+    for (int s = 0;  s < dimSessions;  ++s)
+      topic[s] = solution.getGroupElement(gr, s);
+    
+    for (int p = 0;  p < nPersons;  ++p)
+      order[p] = p;
+    
+    int placed = 0;
+    
+    while (placed < nPersons)
+    {
+      // (re)sort the remaining persons by decreasing regret;
+      // the person number is kept in the lower 32 bits
+      for (int i = placed;  i < nPersons;  ++i)
+      {
+        int p      = (int)order[i];
+        int best   = Integer.MAX_VALUE;
+        int second = Integer.MAX_VALUE;
+        
+        for (int s = 0;  s < dimSessions;  ++s)
+          if (load[s] < capacity)
+          {
+            int rank = problem.getRank(p, topic[s]);
+            
+            if (rank < best)
+            {
+              second = best;
+              best   = rank;
+            }
+            else if (rank < second)
+              second = rank;
+          }
+        
+        int regret = second == Integer.MAX_VALUE ? 0 : second - best;
+        
+        order[i] = ((long)(Integer.MAX_VALUE - regret) << 32) | p;
+      }
+      
+      Arrays.sort(order, placed, nPersons);
+      
+      // place persons until a session becomes full
+      boolean filled = false;
+      
+      while (placed < nPersons && !filled)
+      {
+        int p    = (int)order[placed++];
+        int best = -1;
+        
+        for (int s = 0;  s < dimSessions;  ++s)
+          if (load[s] < capacity
+              && (best < 0 || problem.getRank(p, topic[s])
+                              < problem.getRank(p, topic[best])))
+            best = s;
+        
+        solution.setRole(p, topic[best], unassignedRole);
+        filled = ++load[best] == capacity;
+      }
+    }
+  }
+
+  /**
+   * Assign the roles of all sessions by an optimal matching of the
+   * participants to the role slots (see RoleMatching). 
+   * After calling this method, isValidSolution() should be used
+   * to check whether the role limits could be met.
+   */
+  public void assignRolesByMatching()
+  {
+    if (roleMatching == null)
+      roleMatching = new RoleMatching(problem);
+    
+    solved = roleMatching.assign(solution, problem.getRoleNumber() + 1);
+  }
+  
+  /**
+   * Create a Solution object from the current solution.
+   * 
+   * @param index this is the current number of the solution.
+   *              Will be used to give the solution an initial name
+   *              ("Solution &lt;index&gt;").
+   * @return the new Solution object.
+   */
+  public Solution createSolution(int index)
+  {
+    if (!solved)
+      return null;
+
+    solution.evaluate();
+    
+    StringBuffer name = new StringBuffer("Solution " + (index+1));
+    name.append(": ");
+    name.append(compactFormat.format(solution.getMeanSatisfaction()));
+    name.append(" - ");
+    name.append(compactFormat.format(solution.getMinimumSatisfaction()));
+    name.append(" - ");
+    name.append(compactFormat.format(solution.getStandardDeviation()));
+    solution.setName(name.toString());
+    
+    return solution;
+  }
+}
@@ -0,0 +1,473 @@
+package openSess;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Hashtable;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+/**
+ * BatchSolver solves OpenSess files from the command line, without GUI.
+ * Each file is loaded by a SolverConstructor, solved with the parameters
+ * of its solutionParameters element (which may be overridden by options)
+ * and written back with the new solutions. Directories are searched for
+ * .ose files; several files are solved at the same time on a thread pool
+ * of a fixed size. The SolverService uses BatchSolver objects for its jobs.
+ *
+ * Usage: java openSess.BatchSolver [options] file|directory ...
+ *
+ * Options:
+ *   -jobs n          files solved at the same time (default: processors)
+ *   -threads n       threads of each calculation (default: as in the file,
+ *                    but at most processors/jobs)
+ *   -clusters n      topic clusterings to try
+ *   -assignments n   person assignments to try per clustering
+ *   -attempts n      annealing moves of each assignment
+ *   -keep n          best solutions to keep
+ *   -distinct d      solutions kept only once: solution, assignment
+ *                    (ignoring the roles) or grouping (of the topics)
+ *   -budget s        time budget of each calculation in seconds
+ *   -gap p           stop at an optimality gap of p percent
+ *   -method m        person assignment: annealing or flow
+ *   -schedule s      annealing schedule: hill (default), geometric or adaptive
+ *   -format f        write the files in the compact form (compact) or
+ *                    with an element per number (elements), default: as read
+ *   -out dir         write the solved files to dir instead of
+ *                    replacing the original files
+ */
+public class BatchSolver
+  implements SolverOwner, XMLStateSaving
+{
+  private static final String fileSuffix = ".ose";
+
+  private Solver solver;
+  private int    topicClusters     = 5;
+  private int    personAssignments = 5;
+  private int    attempts          = 100000;
+  private int    keepBest          = 10;
+  private int    threads           = 1;
+  private int    assignment        = Solver.ANNEALING;
+  private int    timeBudget;
+  private double stopGap;
+  private int    distinct          = Solver.DISTINCT_SOLUTION;
+  private int    schedule          = Annealing.HILL_CLIMBING;
+  private double startTemperature;
+  private double endTemperature;
+  private int    reheatAfter;
+
+  /**
+   * Constructs a new BatchSolver. The data must be loaded by load().
+   */
+  public BatchSolver()
+  {
+  }
+
+  /**
+   * Solve the files and directories given as arguments.
+   *
+   * @param args the program arguments.
+   */
+  public static void main(String[] args)
+  {
+    Hashtable options = new Hashtable();
+    Vector    files   = new Vector();
+
+    for (int i = 0;  i < args.length;  ++i)
+    {
+      if (args[i].startsWith("-") && i + 1 < args.length)
+        options.put(args[i].substring(1), args[++i]);
+      else if (args[i].startsWith("-"))
+        usage("Missing value of option " + args[i]);
+      else
+        addFiles(new File(args[i]), files);
+    }
+
+    if (files.isEmpty())
+      usage("No " + fileSuffix + " files given");
+
+    int processors = Runtime.getRuntime().availableProcessors();
+    int jobs       = Math.max(1, getInt(options, "jobs", processors));
+
+    // without an explicit number, the threads of all jobs should not
+    // exceed the number of processors
+    final int        maxThreads = options.containsKey("threads") 
+                                  ? Integer.MAX_VALUE : Math.max(1, processors / jobs);
+    final Hashtable  theOptions = options;
+    final File       outDir     = options.containsKey("out")
+                                  ? new File((String)options.get("out")) : null;
+    final Vector     failed     = new Vector();
+    ExecutorService  pool       = Executors.newFixedThreadPool(Math.min(jobs, files.size()));
+
+    if (outDir != null)
+      outDir.mkdirs();
+
+    for (int f = 0;  f < files.size();  ++f)
+    {
+      final File in = (File)files.elementAt(f);
+
+      pool.execute(new Runnable()
+      {
+        public void run()
+        {
+          File out = outDir == null ? in : new File(outDir, in.getName());
+
+          try
+          {
+            new BatchSolver().run(in, theOptions, maxThreads, out);
+          }
+          catch (Exception e)
+          {
+            System.out.println(in + ": " + e);
+            failed.add(in);
+          }
+        }
+      });
+    }
+
+    pool.shutdown();
+
+    try
+    {
+      while (!pool.awaitTermination(1, TimeUnit.MINUTES))
+        ;
+    }
+    catch (InterruptedException e)
+    {
+      pool.shutdownNow();
+    }
+
+    System.out.println((files.size() - failed.size()) + " of " + files.size()
+                       + " files solved.");
+
+    if (!failed.isEmpty())
+      System.exit(1);
+  }
+
+  /**
+   * Load a file, solve it and write the result.
+   *
+   * @param in         the file to read.
+   * @param options    the command line options.
+   * @param maxThreads the maximum number of threads of the calculation.
+   * @param out        the file to write.
+   * @throws Exception if the file cannot be read or written, or if
+   *                   the constraints of the roles are violated.
+   */
+  public void run(File in, Hashtable options, int maxThreads, File out)
+    throws Exception
+  {
+    InputStream stream = new FileInputStream(in);
+
+    try
+    {
+      load(stream);
+    }
+    finally
+    {
+      stream.close();
+    }
+
+    long       start = System.currentTimeMillis();
+    ObjectName name  = SolverTelemetry.register(solver.getTelemetry(), in.getPath());
+
+    try
+    {
+      solve(options, maxThreads);
+    }
+    finally
+    {
+      SolverTelemetry.unregister(name);
+    }
+
+    save(out);
+
+    System.out.println(in + ": " + getResult() + " ("
+                       + (System.currentTimeMillis() - start) + " ms)");
+  }
+
+  /**
+   * Load the data, parameters and solutions from an XML document.
+   *
+   * @param stream the stream to read the document from.
+   * @throws Exception if the document cannot be read.
+   */
+  public void load(InputStream stream)
+    throws Exception
+  {
+    new SolverConstructor(this).read(stream);
+
+    if (solver == null)
+      throw new IOException("not an OpenSess file");
+  }
+
+  /**
+   * Solve the loaded data in the current thread.
+   *
+   * @param options    options which override the parameters read (see main()).
+   * @param maxThreads the maximum number of threads of the calculation.
+   * @throws IllegalStateException if the constraints of the roles are violated.
+   */
+  public void solve(Hashtable options, int maxThreads)
+  {
+    configure(options);
+
+    String violated = solver.checkConstraints();
+
+    if (violated != null)
+      throw new IllegalStateException("constraints violated:\n" + violated);
+
+    solver.setThreads(Math.max(1, Math.min(threads, maxThreads)));
+    solver.setAssignmentMethod(assignment);
+    solver.setStopGap(stopGap);
+    solver.setDistinctSolutions(distinct);
+    solver.setAnnealingParameters(schedule, startTemperature, endTemperature, reheatAfter);
+    solver.solve(topicClusters, personAssignments, attempts, keepBest, timeBudget);
+  }
+
+  /**
+   * Return the maximum progress value of the calculation (compare
+   * Solver.getCurrent()): the time budget in seconds, or the number
+   * of attempts.
+   *
+   * @return the maximum progress value.
+   */
+  public int getProgressMaximum()
+  {
+    return timeBudget > 0 ? timeBudget : topicClusters * personAssignments;
+  }
+
+  /**
+   * Return a short description of the best solution. The optimality
+   * gap is only given if the lower bound has been calculated, i.e. if
+   * the calculation should stop at a gap.
+   *
+   * @return the description.
+   */
+  public String getResult()
+  {
+    Vector solutions = solver.getSolutions();
+
+    if (solutions.isEmpty())
+      return "no solution";
+
+    Solution best = (Solution)solutions.elementAt(0);
+    double   gap  = solver.getGap(best);
+
+    return "target " + best.getTargetValue()
+           + (gap < 0 ? "" : ", gap " + Math.round(10 * gap) / 10.0 + "%");
+  }
+
+  /**
+   * Write the state to a file. The file is written under a temporary
+   * name first, so that the original file is only replaced when
+   * writing has succeeded.
+   *
+   * @param out the file to write.
+   * @throws IOException if writing fails.
+   */
+  protected void save(File out)
+    throws IOException
+  {
+    File        tmp    = new File(out.getPath() + ".tmp");
+    PrintWriter stream = new PrintWriter(new OutputStreamWriter(new FileOutputStream(tmp),
+                                                                "UTF-8"));
+
+    save(stream, 0);
+    stream.close();
+
+    if (stream.checkError())
+      throw new IOException("cannot write " + tmp);
+
+    if (out.exists() && !out.delete() || !tmp.renameTo(out))
+      throw new IOException("cannot replace " + out);
+  }
+
+  /**
+   * Implements XMLStateSaving.save(), writing the same format as
+   * the MainWindow.
+   */
+  public void save(PrintWriter stream, int level)
+  {
+    solver.saveDocument(stream, level, topicClusters, personAssignments, attempts,
+                        keepBest, distinct, threads, timeBudget, stopGap, assignment,
+                        schedule, startTemperature, endTemperature, reheatAfter,
+                        solver.getSolutions().isEmpty() ? -1 : 0);
+  }
+
+  /**
+   * Override the parameters read from the file by the command line options.
+   *
+   * @param options the command line options.
+   */
+  protected void configure(Hashtable options)
+  {
+    topicClusters     = getInt(options, "clusters",    topicClusters);
+    personAssignments = getInt(options, "assignments", personAssignments);
+    attempts          = getInt(options, "attempts",    attempts);
+    keepBest          = getInt(options, "keep",        keepBest);
+    threads           = getInt(options, "threads",     threads);
+    timeBudget        = Math.max(0, getInt(options, "budget", timeBudget));
+
+    if (options.containsKey("gap"))
+      stopGap = Math.max(0, Double.parseDouble((String)options.get("gap")));
+
+    if (options.containsKey("method"))
+      assignment = "flow".equals(options.get("method"))
+                   ? Solver.MIN_COST_FLOW : Solver.ANNEALING;
+
+    for (int i = 0;  i < Annealing.SCHEDULE_NAMES.length;  ++i)
+      if (Annealing.SCHEDULE_NAMES[i].equals(options.get("schedule")))
+        schedule = i;
+
+    for (int i = 0;  i < Solver.DISTINCT_NAMES.length;  ++i)
+      if (Solver.DISTINCT_NAMES[i].equals(options.get("distinct")))
+        distinct = i;
+
+    if (options.containsKey("format"))
+      solver.setCompactFormat("compact".equals(options.get("format")));
+  }
+
+  /**
+   * Add a file, or the .ose files of a directory and its subdirectories,
+   * to a list of files.
+   *
+   * @param file  the file or directory.
+   * @param files the list of files.
+   */
+  private static void addFiles(File file, Vector files)
+  {
+    if (!file.isDirectory())
+    {
+      files.add(file);
+      return;
+    }
+
+    File entries[] = file.listFiles();
+
+    if (entries == null)
+      return;
+
+    for (int i = 0;  i < entries.length;  ++i)
+      if (entries[i].isDirectory() || entries[i].getName().endsWith(fileSuffix))
+        addFiles(entries[i], files);
+  }
+
+  /**
+   * Return the value of a command line option as an int.
+   *
+   * @param options the command line options.
+   * @param name    the name of the option.
+   * @param def     the default value.
+   * @return the value of the option or the default value.
+   */
+  private static int getInt(Hashtable options, String name, int def)
+  {
+    String value = (String)options.get(name);
+
+    return value == null ? def : Integer.parseInt(value);
+  }
+
+  /**
+   * Print an error and the usage and exit.
+   *
+   * @param error the error message.
+   */
+  private static void usage(String error)
+  {
+    System.out.println(error);
+    System.out.println("Usage: java openSess.BatchSolver [options] file|directory ...");
+    System.out.println("  -jobs n          files solved at the same time");
+    System.out.println("  -threads n       threads of each calculation");
+    System.out.println("  -clusters n      topic clusterings to try");
+    System.out.println("  -assignments n   person assignments to try per clustering");
+    System.out.println("  -attempts n      annealing moves of each assignment");
+    System.out.println("  -keep n          best solutions to keep");
+    System.out.println("  -distinct d      solutions kept only once: solution, assignment or grouping");
+    System.out.println("  -budget s        time budget of each calculation in seconds");
+    System.out.println("  -gap p           stop at an optimality gap of p percent");
+    System.out.println("  -method m        person assignment: annealing or flow");
+    System.out.println("  -schedule s      annealing schedule: hill, geometric or adaptive");
+    System.out.println("  -format f        write the files in compact form or as elements");
+    System.out.println("  -out dir         write the solved files to dir");
+    System.exit(2);
+  }
+
+  // SolverOwner
+
+  public Solver getSolver()
+  {
+    return solver;
+  }
+
+  public void reconfigure(int topicNumber, int personNumber, int roleNumber,
+                          int sessionNumber)
+  {
+    solver = new Solver(topicNumber, personNumber, roleNumber, sessionNumber);
+  }
+
+  public void setSolutionParameters(int topicClusters, int personAssignments,
+                                    int attempts, int keepBest, int threads,
+                                    int assignment)
+  {
+    this.topicClusters     = topicClusters;
+    this.personAssignments = personAssignments;
+    this.attempts          = attempts;
+    this.keepBest          = keepBest;
+    this.threads           = threads;
+    this.assignment        = assignment;
+  }
+
+  public void setTimeBudget(int timeBudget)
+  {
+    this.timeBudget = timeBudget;
+  }
+
+  public void setStopGap(double stopGap)
+  {
+    this.stopGap = stopGap;
+  }
+
+  public void setDistinctSolutions(int distinct)
+  {
+    this.distinct = distinct;
+  }
+
+  public void setAnnealingParameters(int schedule, double startTemperature,
+                                     double endTemperature, int reheatAfter)
+  {
+    this.schedule         = schedule;
+    this.startTemperature = startTemperature;
+    this.endTemperature   = endTemperature;
+    this.reheatAfter      = reheatAfter;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package openSess;
+
+/**
+ * Evaluator calculates the statistical values and the target value
+ * of solutions. The table of optimal roles is calculated once, when
+ * the Evaluator is created; evaluating a solution allocates no memory.
+ * The mean and the standard deviation of the satisfaction values are
+ * accumulated in a single pass with Welford's algorithm.
+ * An Evaluator is not changed by evaluate(), so one instance can be
+ * used by several threads at once.
+ */
+class Evaluator
+{
+  private Problem problem;
+  private int     dimPersons;
+  private int     dimTopics;
+  private int     dimRoles;
+  private int     balancingWeight;
+  private int     optRole[];   // optimal role for each preference rank
+
+  /**
+   * Creates a new Evaluator for a Problem.
+   *
+   * @param problem the Problem.
+   */
+  Evaluator(Problem problem)
+  {
+    int optRoles[] = problem.getOptimalRoles();
+
+    this.problem    = problem;
+    dimPersons      = problem.getPersonNumber();
+    dimTopics       = problem.getTopicNumber();
+    dimRoles        = problem.getRoleNumber();
+    balancingWeight = problem.getBalancingWeight();
+    optRole         = new int[dimTopics];
+
+    for (int rank = 0;  rank < dimTopics;  ++rank)
+      optRole[rank] = optRoles[(rank * dimPersons) / dimTopics];
+  }
+
+  /**
+   * Evaluate a solution and set its statistical values and its
+   * target value.
+   *
+   * @param solution the solution.
+   */
+  void evaluate(Solution solution)
+  {
+    long   sum    = 0, sumSq = 0;
+    long   n      = 0;
+    double mean   = 0;
+    double m2     = 0;
+    double minSat = 1.0;
+    int    ranks[] = problem.getRankTable();
+
+    for (int p = 0;  p < dimPersons;  ++p)
+    {
+      int    pval = 0;
+      double psat = 0;
+
+      for (int t = 0;  t < dimTopics;  ++t)
+      {
+        int rank       = ranks[p*dimTopics + t];
+        int actualRole = solution.getRole(p, t);
+
+        if (actualRole == 0)
+          actualRole = dimRoles+1;
+        else
+          pval += rank;
+
+        double s = 1.0 - Math.abs(optRole[rank] - actualRole) / (double)dimRoles;
+        double d = s - mean;
+
+        psat += s;
+        mean += d / ++n;
+        m2   += d * (s - mean);
+      }
+
+      psat /= dimTopics;
+      solution.setPersonSum(p, psat);
+
+      if (psat < minSat)
+        minSat = psat;
+
+      sum   += pval;
+      sumSq += (long)pval * pval;
+    }
+
+    solution.setStatistics(mean, minSat, Math.sqrt(m2 / n),
+                           Solution.targetValue(sum, sumSq, dimPersons,
+                                                balancingWeight));
+  }
+}
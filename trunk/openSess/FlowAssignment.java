@@ -0,0 +1,297 @@
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package openSess;
+
+/**
+ * FlowAssignment assigns the persons to the sessions of a fixed
+ * topic clustering with the minimum possible sum of preference ranks.
+ *
+ * Once the topic groups are known, each group (time slot) is a
+ * transportation problem: every person must attend one of the
+ * sessions of the group, every session takes dimPersons/dimSessions
+ * persons and the cost of an assignment is the preference rank.
+ * The problem is solved exactly by successive shortest paths: persons
+ * are added one at a time along the cheapest path, which may move
+ * persons that are already assigned from one session to another.
+ * As there are only few sessions per group, the paths are searched on
+ * the sessions only. For each pair of sessions (a, b) a heap holds the
+ * members of a ordered by the cost of moving them to b.
+ *
+ * Only the rank sum is minimized, the balancing part of the target
+ * value is not taken into account.
+ */
+class FlowAssignment
+{
+  private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+  private Problem  problem;
+  private int      dimPersons;
+  private int      dimTopics;
+  private int      dimSessions;
+  private int      cost[];     // rank of session s for person p at p*dimSessions+s
+  private int      at[];       // session of each person or -1
+  private int      load[];     // number of persons in each session
+  private int      topic[];    // topic of each session of the current group
+  private int      dist[];
+  private int      pred[];
+  private LongHeap moves[];    // candidates for moving from a to b at a*dimSessions+b
+
+  /**
+   * Creates a new FlowAssignment for a Problem.
+   *
+   * @param problem the Problem.
+   */
+  FlowAssignment(Problem problem)
+  {
+    this.problem = problem;
+    dimPersons   = problem.getPersonNumber();
+    dimTopics    = problem.getTopicNumber();
+    dimSessions  = problem.getSessionNumber();
+    cost         = new int[dimPersons * dimSessions];
+    at           = new int[dimPersons];
+    load         = new int[dimSessions];
+    topic        = new int[dimSessions];
+    dist         = new int[dimSessions];
+    pred         = new int[dimSessions];
+    moves        = new LongHeap[dimSessions * dimSessions];
+
+    for (int m = 0;  m < moves.length;  ++m)
+      moves[m] = new LongHeap();
+  }
+
+  /**
+   * Assign the persons to the sessions of all topic groups of a solution.
+   * The topic groups must have been set in the solution, the roles of
+   * the solution must be cleared. As in the annealing search, persons
+   * beyond dimSessions*(dimPersons/dimSessions) are not assigned.
+   *
+   * @param solution       the solution.
+   * @param unassignedRole the marker for an assigned person without role.
+   */
+  void assign(Solution solution, int unassignedRole)
+  {
+    int capacity  = dimPersons / dimSessions;
+    int nPersons  = capacity * dimSessions;
+
+    for (int g = 0;  g < solution.getGroupNumber();  ++g)
+    {
+      for (int s = 0;  s < dimSessions;  ++s)
+      {
+        topic[s] = solution.getGroupElement(g, s);
+        load[s]  = 0;
+      }
+
+      for (int m = 0;  m < moves.length;  ++m)
+        moves[m].clear();
+
+      for (int p = 0;  p < dimPersons;  ++p)
+      {
+        at[p] = -1;
+
+        for (int s = 0;  s < dimSessions;  ++s)
+          cost[p*dimSessions + s] = problem.getRank(p, topic[s]);
+      }
+
+      for (int p = 0;  p < nPersons;  ++p)
+        augment(p, capacity);
+
+      for (int p = 0;  p < nPersons;  ++p)
+        solution.setRole(p, topic[at[p]], unassignedRole);
+    }
+  }
+
+  /**
+   * Add a person along the cheapest path. The path starts with the
+   * session the person is assigned to and may continue through other
+   * sessions (moving one person each) until it ends in a session
+   * with free capacity.
+   *
+   * @param person   the person to add.
+   * @param capacity the capacity of each session.
+   */
+  private void augment(int person, int capacity)
+  {
+    for (int s = 0;  s < dimSessions;  ++s)
+    {
+      dist[s] = cost[person*dimSessions + s];
+      pred[s] = -1;
+    }
+
+    // Bellman-Ford on the sessions: the costs of moving persons
+    // can be negative, but there are no negative cycles as the
+    // current assignment is optimal.
+    boolean changed = true;
+
+    for (int round = 1;  changed && round < dimSessions;  ++round)
+    {
+      changed = false;
+
+      for (int a = 0;  a < dimSessions;  ++a)
+        for (int b = 0;  b < dimSessions;  ++b)
+          if (a != b && dist[a] < INFINITY)
+          {
+            int move = cheapestMove(a, b);
+
+            if (move < INFINITY && dist[a] + move < dist[b])
+            {
+              dist[b] = dist[a] + move;
+              pred[b] = a;
+              changed = true;
+            }
+          }
+    }
+
+    int end = -1;
+
+    for (int s = 0;  s < dimSessions;  ++s)
+      if (load[s] < capacity && (end < 0 || dist[s] < dist[end]))
+        end = s;
+
+    ++load[end];
+
+    // walk back along the path and move one person along each edge
+    int b = end;
+
+    while (pred[b] >= 0)
+    {
+      int a     = pred[b];
+      int moved = (int)moves[a*dimSessions + b].peek();
+
+      place(moved, b);
+      b = a;
+    }
+
+    place(person, b);
+  }
+
+  /**
+   * Return the cost of the cheapest move of a person from session a
+   * to session b, or INFINITY if there is no person in a.
+   *
+   * @param a the session to leave.
+   * @param b the session to enter.
+   * @return the cost of the cheapest move.
+   */
+  private int cheapestMove(int a, int b)
+  {
+    LongHeap heap = moves[a*dimSessions + b];
+
+    // remove persons that have left session a in the meantime
+    while (!heap.isEmpty() && at[(int)heap.peek()] != a)
+      heap.pop();
+
+    if (heap.isEmpty())
+      return INFINITY;
+
+    return (int)(heap.peek() >> 32) - dimTopics;
+  }
+
+  /**
+   * Assign a person to a session and register the possible moves
+   * of the person to all other sessions.
+   *
+   * @param person  the person.
+   * @param session the new session of the person.
+   */
+  private void place(int person, int session)
+  {
+    at[person] = session;
+
+    for (int b = 0;  b < dimSessions;  ++b)
+      if (b != session)
+      {
+        long move = cost[person*dimSessions + b] - cost[person*dimSessions + session]
+                    + dimTopics;
+
+        moves[session*dimSessions + b].push((move << 32) | person);
+      }
+  }
+
+  /**
+   * A minimal binary heap of long values.
+   */
+  private static class LongHeap
+  {
+    private long heap[] = new long[16];
+    private int  size   = 0;
+
+    void clear()
+    {
+      size = 0;
+    }
+
+    boolean isEmpty()
+    {
+      return size == 0;
+    }
+
+    long peek()
+    {
+      return heap[0];
+    }
+
+    void push(long value)
+    {
+      if (size == heap.length)
+      {
+        long larger[] = new long[2 * size];
+        System.arraycopy(heap, 0, larger, 0, size);
+        heap = larger;
+      }
+
+      int i = size++;
+
+      while (i > 0 && heap[(i-1) / 2] > value)
+      {
+        heap[i] = heap[(i-1) / 2];
+        i = (i-1) / 2;
+      }
+
+      heap[i] = value;
+    }
+
+    long pop()
+    {
+      long top  = heap[0];
+      long last = heap[--size];
+      int  i    = 0;
+
+      while (2*i + 1 < size)
+      {
+        int c = 2*i + 1;
+
+        if (c + 1 < size && heap[c+1] < heap[c])
+          ++c;
+
+        if (heap[c] >= last)
+          break;
+
+        heap[i] = heap[c];
+        i = c;
+      }
+
+      heap[i] = last;
+      return top;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package openSess;
+
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+/**
+ * IncrementalTarget keeps track of the target value of a Solution while
+ * persons are swapped between the sessions of a topic group.
+ * It maintains the preference rank sum of every person together with
+ * the running sum and sum of squares of these values, so that a swap
+ * can be scored (and taken back) in constant time instead of
+ * recalculating the complete person/topic matrix.
+ * The values returned are identical to Solution.calculateTargetValue().
+ */
+class IncrementalTarget
+{
+  private Problem problem;
+  private int     dimPersons;
+  private int     balancingWeight;
+  private int     personSum[];
+  private long    sum, sumSq;
+  private int     targetValue;
+
+  /**
+   * Constructs a new IncrementalTarget for a Problem.
+   *
+   * @param problem the Problem.
+   */
+  IncrementalTarget(Problem problem)
+  {
+    this.problem    = problem;
+    dimPersons      = problem.getPersonNumber();
+    balancingWeight = problem.getBalancingWeight();
+    personSum       = new int[dimPersons];
+  }
+
+  /**
+   * Recalculate all sums from the role assignments of a solution.
+   *
+   * @param solution the solution.
+   * @return the target value of the solution.
+   */
+  int reset(Solution solution)
+  {
+    int dimTopics = solution.getGroupNumber() * solution.getGroupSize();
+    int rank[]    = problem.getRankTable();
+
+    sum   = 0;
+    sumSq = 0;
+
+    for (int p = 0;  p < dimPersons;  ++p)
+    {
+      int pval = 0;
+
+      for (int t = 0;  t < dimTopics;  ++t)
+        if (solution.getRole(p, t) > 0)
+          pval += rank[p*dimTopics + t];
+
+      personSum[p] = pval;
+      sum   += pval;
+      sumSq += (long)pval * pval;
+    }
+
+    targetValue = Solution.targetValue(sum, sumSq, dimPersons, balancingWeight);
+    return targetValue;
+  }
+
+  /**
+   * Account for a swap of two persons: p1 moves from topic t1 to t2,
+   * p2 moves from topic t2 to t1. The swap is taken back by calling
+   * swap(p1, t2, p2, t1).
+   * Note that this only updates the sums, the solution itself
+   * is not modified.
+   *
+   * @param p1 the first person.
+   * @param t1 the topic the first person leaves.
+   * @param p2 the second person.
+   * @param t2 the topic the second person leaves.
+   * @return the target value after the swap.
+   */
+  int swap(int p1, int t1, int p2, int t2)
+  {
+    move(p1, problem.getRank(p1, t2) - problem.getRank(p1, t1));
+    move(p2, problem.getRank(p2, t1) - problem.getRank(p2, t2));
+
+    targetValue = Solution.targetValue(sum, sumSq, dimPersons, balancingWeight);
+    return targetValue;
+  }
+
+  /**
+   * Return the current target value.
+   *
+   * @return the target value.
+   */
+  int getTargetValue()
+  {
+    return targetValue;
+  }
+
+  /**
+   * Change the rank sum of a person and update the running sums.
+   *
+   * @param person the person.
+   * @param delta  the change of the person's rank sum.
+   */
+  private void move(int person, int delta)
+  {
+    long old = personSum[person];
+    long now = old + delta;
+
+    personSum[person] = (int)now;
+    sum   += delta;
+    sumSq += now * now - old * old;
+  }
+}
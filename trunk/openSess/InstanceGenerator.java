@@ -0,0 +1,344 @@
+package openSess;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.Random;
+
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+/**
+ * InstanceGenerator creates synthetic problems with a preference
+ * structure like that of real conferences, for testing the solver at
+ * large sizes. Persons.setRandomPrefs() only swaps random pairs of
+ * topics, which gives uniform noise; here some topics are much more
+ * popular than others, persons form groups with common interests and
+ * some persons share the same preferences.
+ *
+ * The preferences are drawn from a Plackett-Luce model: each topic has
+ * a weight, and a preference list is ordered by the topic weights
+ * divided by exponentially distributed random numbers, which ranks a
+ * topic first with a probability proportional to its weight, the
+ * next of the remaining topics likewise, and so on.
+ * - The popularity of the topics follows Zipf's law: the topic at
+ *   position k of a random popularity order has the weight 1/k^skew.
+ * - Each person belongs to one of a number of interest clusters. Each
+ *   cluster prefers a random set of topics, whose weights are
+ *   multiplied by the affinity for the members of the cluster.
+ * - A fraction of the persons copy the preferences of an earlier
+ *   person of their cluster, as colleagues often do.
+ * The same seed always produces the same instance.
+ *
+ * Usage: java openSess.InstanceGenerator [options] file
+ *
+ * Options:
+ *   -persons n       number of persons (default: 200)
+ *   -topics n        number of topics (default: 20)
+ *   -roles n         number of roles (default: 3)
+ *   -sessions n      number of parallel sessions (default: 4)
+ *   -seed n          seed of the random numbers (default: 1)
+ *   -skew s          Zipf exponent of the topic popularity, 0 for
+ *                    equally popular topics (default: 1)
+ *   -clusters n      number of interest clusters, 0 for none (default: 0)
+ *   -affinity a      weight factor of the topics of a person's cluster
+ *                    (default: 4)
+ *   -duplicates f    fraction of persons with the same preferences as
+ *                    an earlier person (default: 0)
+ *   -format f        compact to write the preferences as lists of
+ *                    numbers (default: elements)
+ *
+ * An instance with 100000 persons and 200 topics needs about 300 MB of
+ * memory and 700 MB of file space (60 MB in the compact form), so the
+ * Java heap must be enlarged (-Xmx).
+ */
+public class InstanceGenerator
+{
+  private int    dimPersons  = 200;
+  private int    dimTopics   = 20;
+  private int    dimRoles    = 3;
+  private int    dimSessions = 4;
+  private long   seed        = 1;
+  private double skew        = 1.0;
+  private int    clusters;
+  private double affinity    = 4.0;
+  private double duplicates;
+
+  /**
+   * Constructs a new InstanceGenerator with the default parameters.
+   */
+  public InstanceGenerator()
+  {
+  }
+
+  /**
+   * Generate a file with the parameters given as arguments.
+   *
+   * @param args the program arguments.
+   */
+  public static void main(String[] args)
+  {
+    Hashtable options = new Hashtable();
+    File      out     = null;
+
+    for (int i = 0;  i < args.length;  ++i)
+    {
+      if (args[i].startsWith("-") && i + 1 < args.length)
+        options.put(args[i].substring(1), args[++i]);
+      else if (args[i].startsWith("-"))
+        usage("Missing value of option " + args[i]);
+      else if (out == null)
+        out = new File(args[i]);
+      else
+        usage("More than one file given");
+    }
+
+    if (out == null)
+      usage("No file given");
+
+    InstanceGenerator generator = new InstanceGenerator();
+
+    try
+    {
+      generator.configure(options);
+    }
+    catch (IllegalArgumentException e)
+    {
+      usage(e.getMessage());
+    }
+
+    long        start = System.currentTimeMillis();
+    BatchSolver owner = new BatchSolver();
+
+    owner.reconfigure(generator.dimTopics, generator.dimPersons,
+                      generator.dimRoles, generator.dimSessions);
+    generator.generate(owner.getSolver());
+    owner.getSolver().setCompactFormat("compact".equals(options.get("format")));
+
+    try
+    {
+      owner.save(out);
+    }
+    catch (IOException e)
+    {
+      System.out.println("Cannot write " + out + ": " + e.getMessage());
+      System.exit(1);
+    }
+
+    System.out.println(out + ": " + generator.dimPersons + " persons, "
+                       + generator.dimTopics + " topics, "
+                       + (System.currentTimeMillis() - start) + " ms");
+  }
+
+  /**
+   * Set the parameters from options as they are given on the command line.
+   *
+   * @param options the options (name without "-", value).
+   * @throws IllegalArgumentException if a value is invalid.
+   */
+  public void configure(Hashtable options)
+  {
+    dimPersons  = getInt(options, "persons", dimPersons);
+    dimTopics   = getInt(options, "topics", dimTopics);
+    dimRoles    = getInt(options, "roles", dimRoles);
+    dimSessions = getInt(options, "sessions", dimSessions);
+    seed        = options.containsKey("seed")
+                  ? Long.parseLong((String)options.get("seed")) : seed;
+    skew        = getDouble(options, "skew", skew);
+    clusters    = getInt(options, "clusters", clusters);
+    affinity    = getDouble(options, "affinity", affinity);
+    duplicates  = getDouble(options, "duplicates", duplicates);
+
+    if (dimPersons < 1 || dimTopics < 1 || dimRoles < 1 || dimSessions < 1)
+      throw new IllegalArgumentException("The numbers of persons, topics, "
+                                         + "roles and sessions must be positive");
+
+    if (dimTopics % dimSessions != 0 || dimPersons % dimSessions != 0)
+      throw new IllegalArgumentException("The numbers of topics and persons "
+                                         + "must be divisible by the number "
+                                         + "of sessions");
+
+    if (skew < 0 || clusters < 0 || affinity <= 0
+        || duplicates < 0 || duplicates > 1)
+      throw new IllegalArgumentException("Invalid skew, clusters, affinity "
+                                         + "or duplicates");
+  }
+
+  /**
+   * Set the preferences of all persons of a Solver. The Solver must
+   * have the configured numbers of persons and topics.
+   *
+   * @param solver the Solver.
+   */
+  public void generate(Solver solver)
+  {
+    Persons persons = solver.getPersons();
+    Random  rand    = new Random(seed);
+
+    // Zipf weights in a random popularity order
+    int    order[]  = permutation(dimTopics, rand);
+    double weight[] = new double[dimTopics];
+
+    for (int k = 0;  k < dimTopics;  ++k)
+      weight[order[k]] = 1.0 / Math.pow(k + 1, skew);
+
+    // the favourite topics of each cluster, about as many as run
+    // one after the other
+    int    nClusters   = Math.max(1, clusters);
+    double cWeight[][] = new double[nClusters][];
+    int    favourites  = clusters == 0 ? 0 : Math.max(1, dimTopics / dimSessions);
+
+    for (int c = 0;  c < nClusters;  ++c)
+    {
+      int topics[] = permutation(dimTopics, rand);
+
+      cWeight[c] = (double[])weight.clone();
+
+      for (int k = 0;  k < favourites;  ++k)
+        cWeight[c][topics[k]] *= affinity;
+    }
+
+    // the cluster of each person, and the persons ordered by cluster
+    int cluster[] = new int[dimPersons];
+    int start[]   = new int[nClusters + 1];
+    int members[] = new int[dimPersons];
+    int count[]   = new int[nClusters];     // members of each cluster so far
+
+    for (int p = 0;  p < dimPersons;  ++p)
+      ++start[(cluster[p] = rand.nextInt(nClusters)) + 1];
+
+    for (int c = 0;  c < nClusters;  ++c)
+      start[c + 1] += start[c];
+
+    // the lowest bits of a key hold the topic
+    int  topicBits = 32 - Integer.numberOfLeadingZeros(dimTopics);
+    long topicMask = (1L << topicBits) - 1;
+    long key[]     = new long[dimTopics];
+
+    for (int p = 0;  p < dimPersons;  ++p)
+    {
+      int c = cluster[p];
+
+      if (count[c] > 0 && rand.nextDouble() < duplicates)
+      {
+        int other = members[start[c] + rand.nextInt(count[c])];
+
+        for (int i = 0;  i < dimTopics;  ++i)
+          persons.setPreference(p, i, persons.getPreference(other, i));
+      }
+      else
+      {
+        for (int t = 0;  t < dimTopics;  ++t)
+        {
+          // exponential random number divided by the weight; as the
+          // value is positive, the bits of the double sort like it
+          double e = -Math.log(1.0 - rand.nextDouble()) / cWeight[c][t];
+
+          key[t] = Double.doubleToLongBits(e) & ~topicMask | t;
+        }
+
+        Arrays.sort(key);
+
+        for (int i = 0;  i < dimTopics;  ++i)
+          persons.setPreference(p, i, (int)(key[i] & topicMask));
+      }
+
+      members[start[c] + count[c]++] = p;
+    }
+
+    persons.createPreferenceIndex();
+  }
+
+  /**
+   * Create a random permutation of 0..n-1.
+   *
+   * @param n    the length.
+   * @param rand the random number generator.
+   * @return the permutation.
+   */
+  private static int[] permutation(int n, Random rand)
+  {
+    int perm[] = new int[n];
+
+    for (int i = 0;  i < n;  ++i)
+    {
+      int j = rand.nextInt(i + 1);
+
+      perm[i] = perm[j];
+      perm[j] = i;
+    }
+
+    return perm;
+  }
+
+  /**
+   * Return an integer option.
+   *
+   * @param options the options.
+   * @param name    the name of the option.
+   * @param def     the default value.
+   * @return the value of the option, or the default if it is not set.
+   */
+  private static int getInt(Hashtable options, String name, int def)
+  {
+    String value = (String)options.get(name);
+
+    return value == null ? def : Integer.parseInt(value);
+  }
+
+  /**
+   * Return a floating point option.
+   *
+   * @param options the options.
+   * @param name    the name of the option.
+   * @param def     the default value.
+   * @return the value of the option, or the default if it is not set.
+   */
+  private static double getDouble(Hashtable options, String name, double def)
+  {
+    String value = (String)options.get(name);
+
+    return value == null ? def : Double.parseDouble(value);
+  }
+
+  /**
+   * Print an error and the usage and exit.
+   *
+   * @param error the error message.
+   */
+  private static void usage(String error)
+  {
+    System.out.println(error);
+    System.out.println("Usage: java openSess.InstanceGenerator [options] file");
+    System.out.println("  -persons n       number of persons");
+    System.out.println("  -topics n        number of topics");
+    System.out.println("  -roles n         number of roles");
+    System.out.println("  -sessions n      number of parallel sessions");
+    System.out.println("  -seed n          seed of the random numbers");
+    System.out.println("  -skew s          Zipf exponent of the topic popularity");
+    System.out.println("  -clusters n      number of interest clusters");
+    System.out.println("  -affinity a      weight factor of the cluster topics");
+    System.out.println("  -duplicates f    fraction of persons copying another's preferences");
+    System.out.println("  -format f        compact or elements");
+    System.exit(2);
+  }
+}
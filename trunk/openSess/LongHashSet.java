@@ -0,0 +1,144 @@
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package openSess;
+import java.util.Arrays;
+
+/**
+ * LongHashSet is a set of long values (hash values from Zobrist) with
+ * open addressing and linear probing, so that no objects are created
+ * for the elements. The value 0 marks an empty slot and is stored
+ * separately. The set is not synchronized.
+ */
+class LongHashSet
+{
+  private long    table[];
+  private int     size;
+  private boolean hasZero;
+
+  /**
+   * Creates a new, empty LongHashSet.
+   */
+  LongHashSet()
+  {
+    table = new long[16];
+  }
+
+  /**
+   * Return true if the set contains a value.
+   *
+   * @param value the value.
+   * @return true if the value is in the set.
+   */
+  boolean contains(long value)
+  {
+    if (value == 0)
+      return hasZero;
+
+    int mask = table.length - 1;
+
+    for (int i = slot(value);  table[i] != 0;  i = (i + 1) & mask)
+      if (table[i] == value)
+        return true;
+
+    return false;
+  }
+
+  /**
+   * Add a value to the set.
+   *
+   * @param value the value.
+   * @return true if the value was not in the set before.
+   */
+  boolean add(long value)
+  {
+    if (value == 0)
+    {
+      boolean added = !hasZero;
+
+      hasZero = true;
+      return added;
+    }
+
+    if (2 * (size + 1) > table.length)
+      rehash(2 * table.length);
+
+    int mask = table.length - 1;
+    int i    = slot(value);
+
+    for (;  table[i] != 0;  i = (i + 1) & mask)
+      if (table[i] == value)
+        return false;
+
+    table[i] = value;
+    ++size;
+    return true;
+  }
+
+  /**
+   * Remove all values from the set.
+   */
+  void clear()
+  {
+    Arrays.fill(table, 0);
+    size    = 0;
+    hasZero = false;
+  }
+
+  /**
+   * Return the number of values in the set.
+   *
+   * @return the number of values.
+   */
+  int size()
+  {
+    return hasZero ? size + 1 : size;
+  }
+
+  /**
+   * Return the first slot for a value.
+   *
+   * @param value the value.
+   * @return the slot index.
+   */
+  private int slot(long value)
+  {
+    return (int)(Zobrist.mix(value) & (table.length - 1));
+  }
+
+  /**
+   * Move all values into a larger table.
+   *
+   * @param capacity the new table size (a power of 2).
+   */
+  private void rehash(int capacity)
+  {
+    long old[] = table;
+
+    table = new long[capacity];
+    size  = 0;
+
+    for (int i = 0;  i < old.length;  ++i)
+      if (old[i] != 0)
+        add(old[i]);
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package openSess;
+import java.util.Arrays;
+
+/**
+ * LowerBound calculates a lower bound for the target value of all
+ * solutions of a Solver, whatever the topic clustering.
+ *
+ * In every solution each attending person visits one topic per group,
+ * i.e. dimTopics/dimSessions different topics, and each topic is visited
+ * by dimPersons/dimSessions persons. Dropping the group structure leaves
+ * a transportation problem of persons to topics with the preference rank
+ * as cost. The topic capacities are relaxed in a Lagrangian way: with a
+ * price for each topic, every person simply chooses the topics with the
+ * smallest rank plus price, and the prices are adjusted by subgradient
+ * steps towards the capacities. Every set of prices gives a valid bound
+ * on the rank sum, and as the balancing part of the target value is never
+ * negative, on the target value as well. The steps end after a number of
+ * iterations or a time limit, whichever comes first.
+ */
+class LowerBound
+{
+  private static final int  ITERATIONS = 200;
+  private static final long MAX_MILLIS = 3000;  // time limit of the steps
+
+  private Problem problem;
+  private int     dimTopics;
+  private int     nPersons;   // persons which attend sessions
+  private int     visits;     // topics visited by each person
+  private int     capacity;   // persons in each session
+
+  /**
+   * Creates a new LowerBound for a Problem.
+   *
+   * @param problem the Problem.
+   */
+  LowerBound(Problem problem)
+  {
+    int dimSessions = problem.getSessionNumber();
+
+    this.problem = problem;
+    dimTopics    = problem.getTopicNumber();
+    capacity     = problem.getPersonNumber() / dimSessions;
+    nPersons     = capacity * dimSessions;
+    visits       = dimTopics / dimSessions;
+  }
+
+  /**
+   * Calculate the lower bound.
+   *
+   * @return the lower bound of the target value.
+   */
+  int calculate()
+  {
+    double price[] = new double[dimTopics];
+    double cost[]  = new double[dimTopics];
+    double sorted[] = new double[dimTopics];
+    int    count[] = new int[dimTopics];
+    int    rank[]  = problem.getRankTable();
+    double best    = 0;
+    long   end     = System.currentTimeMillis() + MAX_MILLIS;
+
+    for (int k = 0;  k < ITERATIONS;  ++k)
+    {
+      double bound = 0;
+
+      if (k > 0 && System.currentTimeMillis() > end)
+        break;
+
+      Arrays.fill(count, 0);
+
+      for (int p = 0;  p < nPersons;  ++p)
+      {
+        for (int t = 0;  t < dimTopics;  ++t)
+          cost[t] = rank[p*dimTopics + t] + price[t];
+
+        // only the smallest costs are needed, not their order
+        System.arraycopy(cost, 0, sorted, 0, dimTopics);
+        select(sorted, visits - 1);
+
+        for (int i = 0;  i < visits;  ++i)
+          bound += sorted[i];
+
+        // count the chosen topics, topics at the threshold
+        // only as long as places are left
+        double threshold = sorted[visits - 1];
+        int    left      = visits;
+
+        for (int t = 0;  t < dimTopics;  ++t)
+          if (cost[t] < threshold)
+          {
+            ++count[t];
+            --left;
+          }
+
+        for (int t = 0;  t < dimTopics && left > 0;  ++t)
+          if (cost[t] == threshold)
+          {
+            ++count[t];
+            --left;
+          }
+      }
+
+      double norm = 0;
+
+      for (int t = 0;  t < dimTopics;  ++t)
+      {
+        bound -= capacity * price[t];
+        norm  += (double)(count[t] - capacity) * (count[t] - capacity);
+      }
+
+      // a step that has gone wrong numerically must not spoil the bound
+      if (Double.isNaN(bound) || Double.isInfinite(bound))
+        break;
+
+      best = Math.max(best, bound);
+
+      if (norm == 0)
+        break;  // the capacities are met, the bound is exact
+
+      // diminishing step, scaled so that the first steps move the
+      // prices by a few ranks
+      double step = (double)dimTopics / (Math.sqrt(norm) * Math.sqrt(k + 1));
+
+      for (int t = 0;  t < dimTopics;  ++t)
+        price[t] += step * (count[t] - capacity);
+    }
+
+    return (int)Math.ceil(best - 1e-6);
+  }
+
+  /**
+   * Rearrange an array so that the element at index k is the one that
+   * would be there if the array was sorted, with no larger element
+   * before it and no smaller one after it (Hoare's selection).
+   *
+   * @param a the array.
+   * @param k the index.
+   */
+  private static void select(double a[], int k)
+  {
+    int lo = 0;
+    int hi = a.length - 1;
+
+    while (lo < hi)
+    {
+      double pivot = a[(lo + hi) >>> 1];
+      int    i     = lo;
+      int    j     = hi;
+
+      while (i <= j)
+      {
+        while (a[i] < pivot)
+          ++i;
+
+        while (a[j] > pivot)
+          --j;
+
+        if (i <= j)
+        {
+          double swap = a[i];
+
+          a[i++] = a[j];
+          a[j--] = swap;
+        }
+      }
+
+      if (k <= j)
+        hi = j;
+      else if (k >= i)
+        lo = i;
+      else
+        break;
+    }
+  }
+}
@@ -5,8 +5,8 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Vector;
 
+import javax.management.ObjectName;
 import javax.swing.AbstractButton;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
@@ -22,11 +22,7 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.KeyStroke;
 import javax.swing.filechooser.FileFilter;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLStreamException;
 
 /*
  * Copyright 2005 Andreas Wickner
@@ -60,7 +56,7 @@ import org.xml.sax.SAXException;
  */
 public class MainWindow
   extends ChangeMonitor
-  implements ActionListener, CommandProcessor, XMLStateSaving
+  implements ActionListener, CommandProcessor, XMLStateSaving, SolverOwner
 {
   private final String       programName = "OpenSess";
   private final String       fileSuffix  = "ose";
@@ -73,17 +69,14 @@ public class MainWindow
   private GlobalNewWindow    globalNewWindow;
   private HelpWindow         helpWindow;
   private Solver             solver;
+  private ObjectName         telemetryName;
   private File               currentFile;
-  private SAXParserFactory   parserFactory;
 
   /**
    * Constructs a new MainWindow.
    */
   public MainWindow()
   {
-    // Initialise the XML parser factory
-    parserFactory = SAXParserFactory.newInstance();
-    
     // Make sure we have nice window decorations.
     JFrame.setDefaultLookAndFeelDecorated(true);
     JDialog.setDefaultLookAndFeelDecorated(true);
@@ -147,11 +140,62 @@ public class MainWindow
    * @param personAssignments the number of person assignments to try.
    * @param attempts          the maximum number of assignment attempts.
    * @param keepBest          the number of best solutions to keep in a list.
+   * @param threads           the number of threads used for the calculation.
+   * @param assignment        the person assignment method.
    */
   public void setSolutionParameters(int topicClusters, int personAssignments,
-                                    int attempts, int keepBest)
+                                    int attempts, int keepBest, int threads,
+                                    int assignment)
+  {
+    solutionPanel.setSolutionParameters(topicClusters, personAssignments, attempts, 
+                                        keepBest, threads, assignment);
+  }
+  
+  /**
+   * Sets the time budget of the calculation.
+   * 
+   * @param timeBudget  the time budget in seconds, 0 for none.
+   */
+  public void setTimeBudget(int timeBudget)
+  {
+    solutionPanel.setTimeBudget(timeBudget);
+  }
+  
+  /**
+   * Sets the optimality gap at which the calculation is stopped.
+   * 
+   * @param stopGap  the gap in percent of the target value, 0 for never.
+   */
+  public void setStopGap(double stopGap)
+  {
+    solutionPanel.setStopGap(stopGap);
+  }
+  
+  /**
+   * Sets which solutions count as duplicates in the list of the best ones.
+   * 
+   * @param distinct  Solver.DISTINCT_SOLUTION, DISTINCT_ASSIGNMENT or
+   *                  DISTINCT_GROUPING.
+   */
+  public void setDistinctSolutions(int distinct)
   {
-    solutionPanel.setSolutionParameters(topicClusters, personAssignments, attempts, keepBest);
+    solutionPanel.setDistinctSolutions(distinct);
+  }
+  
+  /**
+   * Sets the parameters of the simulated annealing search.
+   * 
+   * @param schedule          Annealing.HILL_CLIMBING, GEOMETRIC or ADAPTIVE.
+   * @param startTemperature  the start temperature, 0 for automatic calibration.
+   * @param endTemperature    the end temperature, 0 for 1/1000 of the start.
+   * @param reheatAfter       the moves without improvement before reheating, 
+   *                          0 for never.
+   */
+  public void setAnnealingParameters(int schedule, double startTemperature,
+                                     double endTemperature, int reheatAfter)
+  {
+    solutionPanel.setAnnealingParameters(schedule, startTemperature, 
+                                         endTemperature, reheatAfter);
   }
   
   /**
@@ -400,8 +444,8 @@ public class MainWindow
    * @param roleNumber    the new number of roles.
    * @param sessionNumber the new number of sessions.
    */
-  protected void reconfigure(int topicNumber, int personNumber, int roleNumber,
-                             int sessionNumber)
+  public void reconfigure(int topicNumber, int personNumber, int roleNumber,
+                          int sessionNumber)
   {
     topicPanel.hideEditor();
     personPanel.hideEditor();
@@ -412,6 +456,10 @@ public class MainWindow
     
     solver = new Solver(topicNumber, personNumber, roleNumber, sessionNumber);
     
+    // the figures of the calculations can be watched over JMX
+    SolverTelemetry.unregister(telemetryName);
+    telemetryName = SolverTelemetry.register(solver.getTelemetry(), programName);
+    
     // reconfigure the panels
     topicPanel.reconfigure(solver, solver.getTopics().getNames());
     personPanel.reconfigure(solver, solver.getPersons().getNames());
@@ -440,15 +488,9 @@ public class MainWindow
       
       try
       {
-        SAXParser parser = parserFactory.newSAXParser();
-        parser.parse(currentFile, new SolverConstructor(this));
+        new SolverConstructor(this).read(currentFile);
       }
-      catch (ParserConfigurationException e)
-      {
-        JOptionPane.showMessageDialog(frame, e.toString(), "Error configuring parser", 
-                                      JOptionPane.ERROR_MESSAGE); 
-      }
-      catch (SAXException e)
+      catch (XMLStreamException e)
       {
         JOptionPane.showMessageDialog(frame, e.toString(), "Error reading file", 
                                       JOptionPane.ERROR_MESSAGE); 
@@ -498,37 +540,21 @@ public class MainWindow
    */
   public void save(PrintWriter stream, int level)
   {
-    stream.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-    stream.println("<openconclave topics=\"" + solver.getTopics().getNumber()
-                   + "\" persons=\"" + solver.getPersons().getNumber()
-                   + "\" roles=\"" + solver.getRoles().getNumber()
-                   + "\" sessions=\"" + solver.getSessionNumber()
-                   + "\">");
-    
-    solver.getTopics().save(stream, level+1);
-    solver.getPersons().save(stream, level+1);
-    solver.getRoles().save(stream, level+1);
-    solver.getLocations().save(stream, level+1);
-    solver.getTimes().save(stream, level+1);
-
-    Indenter.println(stream, level+1, "<solutionParameters topicClusters=\""
-                     + solutionPanel.getTopicClusters() + "\" personAssignments=\""
-                     + solutionPanel.getPersonAssignments() + "\" attempts=\""
-                     + solutionPanel.getAttempts() + "\" keepBest=\""
-                     + solutionPanel.getKeepBest() + "\"/>");
-    
-    Indenter.println(stream, level+1, "<selectedSolution index=\""
-                     + solutionPanel.getList().getSelectedIndex() + "\"/>");
-                     		
-    Indenter.println(stream, level+1, "<solutions>");
-    
-    Vector solutions = solver.getSolutions();
-    
-    for (int s = 0;  s < solutions.size();  ++s)
-      ((Solution)solutions.elementAt(s)).save(stream, level+2);
-    
-    Indenter.println(stream, level+1, "</solutions>");
-    stream.println("</openconclave>");
+    solver.saveDocument(stream, level,
+                        solutionPanel.getTopicClusters(),
+                        solutionPanel.getPersonAssignments(),
+                        solutionPanel.getAttempts(),
+                        solutionPanel.getKeepBest(),
+                        solutionPanel.getDistinctSolutions(),
+                        solutionPanel.getThreads(),
+                        solutionPanel.getTimeBudget(),
+                        solutionPanel.getStopGap(),
+                        solutionPanel.getAssignmentMethod(),
+                        solutionPanel.getAnnealingSchedule(),
+                        solutionPanel.getStartTemperature(),
+                        solutionPanel.getEndTemperature(),
+                        solutionPanel.getReheatAfter(),
+                        solutionPanel.getList().getSelectedIndex());
   }
 
   /**
@@ -32,6 +32,11 @@ import javax.swing.DefaultListModel;
 /**
  * Persons maintains a list of person names and their data.
  * 
+ * The preferences are kept in flat arrays indexed person*dimTopics+i,
+ * so that the loops over all persons and topics access contiguous
+ * memory. createPreferenceIndex() derives the rank table and a
+ * column-major copy of the preference lists from them.
+ * 
  * @author Gero Scholz
  */
 public class Persons
@@ -41,8 +46,10 @@ public class Persons
   private DefaultListModel names;
   private static int       nameLen = 30;
   
-  private int              pref[][];    /** the topics ordered by preference */
-  private int              prefInx[][]; /** the rank of the preference for each topic */
+  private int              dimTopics;
+  private int              pref[];      /** the topics ordered by preference */
+  private int              prefInx[];   /** the rank of the preference for each topic */
+  private int              prefColumn[];/** pref transposed: index*dimPersons+person */
 
   /**
    * Constructs a new Persons object. Uses the configuration data in a
@@ -61,13 +68,17 @@ public class Persons
       names.addElement("Person " + (p+1));
 
     // create an initial preference structure
-    pref = new int[dimPersons][dimTopics];
-    prefInx = new int[dimPersons][dimTopics];
+    this.dimTopics = dimTopics;
+    pref       = new int[dimPersons * dimTopics];
+    prefInx    = new int[dimPersons * dimTopics];
+    prefColumn = new int[dimPersons * dimTopics];
+    
     for (int p = 0; p < dimPersons; p++)
     {
       for (int t = 0; t < dimTopics; t++)
       {
-        prefInx[p][t] = pref[p][t] = t;
+        prefInx[p*dimTopics + t] = pref[p*dimTopics + t] = t;
+        prefColumn[t*dimPersons + p] = t;
       }
     }
   }
@@ -113,7 +124,7 @@ public class Persons
    */
   public int getPreference(int person, int index)
   {
-    return pref[person][index];
+    return pref[person*dimTopics + index];
   }
   
   /**
@@ -126,7 +137,7 @@ public class Persons
    */
   public void setPreference(int person, int index, int topic)
   {
-    pref[person][index] = topic;  
+    pref[person*dimTopics + index] = topic;  
   }
   
   /**
@@ -139,7 +150,32 @@ public class Persons
    */
   public int getPreferenceIndex(int person, int topic)
   {
-    return prefInx[person][topic];
+    return prefInx[person*dimTopics + topic];
+  }
+  
+  /**
+   * Return the table of preference ranks: the rank of topic t for
+   * person p is found at p*dimTopics+t. The table is updated in place
+   * by createPreferenceIndex() and must not be modified.
+   * 
+   * @return the rank table.
+   */
+  int[] getRankTable()
+  {
+    return prefInx;
+  }
+  
+  /**
+   * Return the preference lists in column-major order: the topic
+   * at index i of the list of person p is found at i*dimPersons+p.
+   * The table is updated in place by createPreferenceIndex() and must
+   * not be modified.
+   * 
+   * @return the transposed preference lists.
+   */
+  int[] getPreferenceColumns()
+  {
+    return prefColumn;
   }
   
   /**
@@ -187,11 +223,11 @@ public class Persons
     {
       for (int i = 0;  i < shuffle;  i++)	
       {
-        int j = rand.nextInt(dimTopics);
-        int k = rand.nextInt(dimTopics);
-        int tmp = pref[p][j];
-        pref[p][j] = pref[p][k];
-        pref[p][k] = tmp;
+        int j = p*dimTopics + rand.nextInt(dimTopics);
+        int k = p*dimTopics + rand.nextInt(dimTopics);
+        int tmp = pref[j];
+        pref[j] = pref[k];
+        pref[k] = tmp;
       }
     }
     
@@ -199,16 +235,21 @@ public class Persons
   }
 
   /**
-   * Create an inverted preference list containing the the rank of each topic.
+   * Create an inverted preference list containing the the rank of each topic,
+   * and the column-major copy of the preference lists.
    */
   public void createPreferenceIndex()
   {
     int dimPersons = solver.getPersons().getNumber();
-    int dimTopics  = solver.getTopics().getNumber();
 
     for (int p = 0; p < dimPersons; p++)
       for (int t = 0; t < dimTopics; t++)
-        prefInx[p][pref[p][t]] = t;
+      {
+        int topic = pref[p*dimTopics + t];
+        
+        prefInx[p*dimTopics + topic] = t;
+        prefColumn[t*dimPersons + p] = topic;
+      }
   }
 
   /**
@@ -227,7 +268,7 @@ public class Persons
       s += getName(p) + ":";
       for (int t = 0; t < dimTopics; t++)
       {
-        String tmp = "   " + (pref[p][t] + 1);
+        String tmp = "   " + (pref[p*dimTopics + t] + 1);
         s += tmp.substring(tmp.length() - 3);
       }
       s += "\n";
@@ -272,7 +313,7 @@ public class Persons
       for (int t = 0; t < dimTopics; t++)
       {
       	// changed prefInx to pref -- GS - 2005-02-22
-        s += solver.getTopics().getName(pref[p][t]);
+        s += solver.getTopics().getName(pref[p*dimTopics + t]);
         if (t < dimTopics - 1)
           s += "__";
       }
@@ -290,14 +331,26 @@ public class Persons
 
     for (int p = 0;  p < getNumber();  ++p)
     {
+      if (solver.isCompactFormat())
+      {
+        StringBuffer prefs = new StringBuffer();
+        
+        for (int t = 0;  t < dimTopics;  ++t)
+          prefs.append(t == 0 ? "" : " ").append(getPreference(p, t));
+        
+        Indenter.println(stream, level+1, "<person name=\"" + getName(p) 
+                         + "\" prefs=\"" + prefs + "\"/>");
+        continue;
+      }
+      
       Indenter.println(stream, level+1, "<person name=\"" + getName(p) + "\">");
       
       for (int t = 0;  t < solver.getTopics().getNumber();  ++t)
-        Indenter.println(stream, level+2, "<preferredTopic index=\"" + pref[p][t] + "\"/>");
+        Indenter.println(stream, level+2, "<preferredTopic index=\"" + getPreference(p, t) + "\"/>");
       
       Indenter.println(stream, level+1, "</person>");
     }
     
     Indenter.println(stream, level, "</persons>");
   }
-}
\ No newline at end of file
+}
\ No newline at end of file
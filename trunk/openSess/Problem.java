@@ -0,0 +1,198 @@
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package openSess;
+
+/**
+ * Problem is an immutable snapshot of the data of a Solver that the
+ * solution algorithm works on: the dimensions, the preferences of the
+ * persons and the role limits. It holds primitive values only and is
+ * taken when a calculation is started (see Solver.createProblem()),
+ * so the algorithm does not go through the list models of Persons,
+ * Topics and Roles, which are synchronized and may be edited in the
+ * GUI while the calculation runs.
+ */
+final class Problem
+{
+  private final int dimPersons;
+  private final int dimTopics;
+  private final int dimRoles;
+  private final int dimSessions;
+  private final int balancingWeight;
+  private final int rank[];          // rank of topic t for person p at p*dimTopics+t
+  private final int prefColumn[];    // topic at index i for person p at i*dimPersons+p
+  private final int minPerSession[];
+  private final int maxPerSession[];
+  private final int optRoles[];
+
+  /**
+   * Creates a new Problem from the current data of a Solver object.
+   * The preference index of the persons is updated first.
+   * This should be called in the thread that edits the data.
+   *
+   * @param solver the Solver object.
+   */
+  Problem(Solver solver)
+  {
+    Persons persons = solver.getPersons();
+    Roles   roles   = solver.getRoles();
+
+    persons.createPreferenceIndex();
+
+    dimPersons      = persons.getNumber();
+    dimTopics       = solver.getTopics().getNumber();
+    dimRoles        = roles.getNumber();
+    dimSessions     = solver.getSessionNumber();
+    balancingWeight = solver.getBalancingWeight();
+    rank            = (int[])persons.getRankTable().clone();
+    prefColumn      = (int[])persons.getPreferenceColumns().clone();
+    minPerSession   = new int[dimRoles];
+    maxPerSession   = new int[dimRoles];
+
+    for (int r = 0;  r < dimRoles;  ++r)
+    {
+      minPerSession[r] = roles.getMinimumPerSession(r);
+      maxPerSession[r] = roles.getMaximumPerSession(r);
+    }
+
+    optRoles = Solution.optimalRoles(this);
+  }
+
+  /**
+   * Return the number of persons.
+   *
+   * @return the number of persons.
+   */
+  int getPersonNumber()
+  {
+    return dimPersons;
+  }
+
+  /**
+   * Return the number of topics.
+   *
+   * @return the number of topics.
+   */
+  int getTopicNumber()
+  {
+    return dimTopics;
+  }
+
+  /**
+   * Return the number of roles.
+   *
+   * @return the number of roles.
+   */
+  int getRoleNumber()
+  {
+    return dimRoles;
+  }
+
+  /**
+   * Return the number of sessions.
+   *
+   * @return the number of sessions.
+   */
+  int getSessionNumber()
+  {
+    return dimSessions;
+  }
+
+  /**
+   * Return the weight of the balancing part of the target function.
+   *
+   * @return the balancing weight.
+   */
+  int getBalancingWeight()
+  {
+    return balancingWeight;
+  }
+
+  /**
+   * Return the preference rank of a topic for a person
+   * (see Persons.getPreferenceIndex()).
+   *
+   * @param person the index of the person.
+   * @param topic  the index of the topic.
+   * @return the rank of the topic.
+   */
+  int getRank(int person, int topic)
+  {
+    return rank[person*dimTopics + topic];
+  }
+
+  /**
+   * Return the table of preference ranks: the rank of topic t for
+   * person p is found at p*dimTopics+t. The table must not be modified.
+   *
+   * @return the rank table.
+   */
+  int[] getRankTable()
+  {
+    return rank;
+  }
+
+  /**
+   * Return the preference lists in column-major order: the topic
+   * at index i of the list of person p is found at i*dimPersons+p.
+   * The table must not be modified.
+   *
+   * @return the transposed preference lists.
+   */
+  int[] getPreferenceColumns()
+  {
+    return prefColumn;
+  }
+
+  /**
+   * Return the minimum number of persons with a role in each session.
+   *
+   * @param role the index of the role (0-based).
+   * @return the minimum number.
+   */
+  int getMinimumPerSession(int role)
+  {
+    return minPerSession[role];
+  }
+
+  /**
+   * Return the maximum number of persons with a role in each session.
+   *
+   * @param role the index of the role (0-based).
+   * @return the maximum number.
+   */
+  int getMaximumPerSession(int role)
+  {
+    return maxPerSession[role];
+  }
+
+  /**
+   * Return the optimal roles (see Solution.optimalRoles()).
+   * The array must not be modified.
+   *
+   * @return the optimal roles.
+   */
+  int[] getOptimalRoles()
+  {
+    return optRoles;
+  }
+}
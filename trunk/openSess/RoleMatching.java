@@ -0,0 +1,214 @@
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package openSess;
+import java.util.Arrays;
+
+/**
+ * RoleMatching assigns the roles of each session optimally with
+ * regard to the satisfaction measured by Solution.evaluate().
+ *
+ * The satisfaction of a participant with role r is
+ * 1 - |opt - r| / dimRoles, where opt is the optimal role that
+ * follows from the preference rank of the topic. Maximizing the
+ * satisfaction of a session is a matching of participants to role
+ * slots with the cost |opt - r|. As this cost is convex in the
+ * difference, there is an optimal matching which gives non-decreasing
+ * roles to the participants ordered by opt. What remains is to choose
+ * how many participants get each role within the minimum and maximum
+ * per session, which is done by dynamic programming over the roles.
+ * The result is deterministic: participants with the same opt are
+ * taken in the order of their index.
+ */
+class RoleMatching
+{
+  private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+  private Problem problem;
+  private int     dimPersons;
+  private int     dimTopics;
+  private int     dimRoles;
+  private int     optRoles[];
+  private int     members[];   // participants of the session, ordered by opt
+  private int     opt[];       // optimal role of each participant of the session
+  private int     bucket[];
+  private int     cost[][];    // cost[r][k]: dp over roles 1..r and k participants
+  private int     count[][];   // number of participants with role r in cost[r][k]
+  private int     prefix[];
+  private long    baseDeviation; // deviation if no-one participated (role dimRoles+1)
+  private long    deviation;     // sum of |opt - role| over all persons and topics
+
+  /**
+   * Creates a new RoleMatching for a Problem.
+   *
+   * @param problem the Problem.
+   */
+  RoleMatching(Problem problem)
+  {
+    this.problem = problem;
+    dimPersons   = problem.getPersonNumber();
+    dimTopics    = problem.getTopicNumber();
+    dimRoles     = problem.getRoleNumber();
+    optRoles     = problem.getOptimalRoles();
+    members    = new int[dimPersons];
+    opt        = new int[dimPersons];
+    bucket     = new int[dimRoles + 3];
+    cost       = new int[dimRoles + 1][dimPersons + 1];
+    count      = new int[dimRoles + 1][dimPersons + 1];
+    prefix     = new int[dimPersons + 1];
+
+    // each person has each rank once
+    for (int rank = 0;  rank < dimTopics;  ++rank)
+      baseDeviation += (long)dimPersons
+                       * (dimRoles + 1 - optRoles[(rank * dimPersons) / dimTopics]);
+  }
+
+  /**
+   * Assign the roles of all sessions. The participants of a session
+   * are marked with the unassigned role in the solution and will
+   * receive roles from 1 to dimRoles.
+   *
+   * @param solution       the solution.
+   * @param unassignedRole the marker for a participant without role.
+   * @return false if the role limits cannot be met in some session.
+   */
+  boolean assign(Solution solution, int unassignedRole)
+  {
+    deviation = baseDeviation;
+
+    for (int t = 0;  t < dimTopics;  ++t)
+      if (!assignSession(solution, t, unassignedRole))
+        return false;
+
+    return true;
+  }
+
+  /**
+   * Return the mean satisfaction of the solution of the last successful
+   * call of assign(), as Solution.evaluate() would calculate it: the
+   * satisfaction of a person with a topic is 1 - |opt - r| / dimRoles,
+   * where r is dimRoles+1 for a topic the person does not attend.
+   *
+   * @return the mean satisfaction.
+   */
+  double getMeanSatisfaction()
+  {
+    return 1.0 - deviation / ((double)dimRoles * dimPersons * dimTopics);
+  }
+
+  /**
+   * Assign the roles of the session for a topic.
+   *
+   * @param solution       the solution.
+   * @param t              the topic of the session.
+   * @param unassignedRole the marker for a participant without role.
+   * @return false if the role limits cannot be met.
+   */
+  private boolean assignSession(Solution solution, int t, int unassignedRole)
+  {
+    // collect the participants and order them by their optimal role
+    // (counting sort, opt is in 1..dimRoles+1)
+    Arrays.fill(bucket, 0);
+    int size = 0;
+
+    for (int p = 0;  p < dimPersons;  ++p)
+      if (solution.getRole(p, t) == unassignedRole)
+      {
+        int o = optRoles[(problem.getRank(p, t) * dimPersons) / dimTopics];
+
+        opt[size++] = o;
+        ++bucket[o + 1];
+      }
+
+    for (int o = 1;  o < bucket.length;  ++o)
+      bucket[o] += bucket[o - 1];
+
+    size = 0;
+
+    for (int p = 0;  p < dimPersons;  ++p)
+      if (solution.getRole(p, t) == unassignedRole)
+        members[bucket[opt[size++]]++] = p;
+
+    for (int i = 0;  i < size;  ++i)
+      opt[i] = optRoles[(problem.getRank(members[i], t) * dimPersons)
+                        / dimTopics];
+
+    // cost[r][k] is the minimum cost of giving roles 1..r to the first k
+    // participants, count[r][k] the number of those with role r
+    Arrays.fill(cost[0], INFINITY);
+    cost[0][0] = 0;
+
+    for (int r = 1;  r <= dimRoles;  ++r)
+    {
+      int min = problem.getMinimumPerSession(r - 1);
+      int max = problem.getMaximumPerSession(r - 1);
+
+      prefix[0] = 0;
+
+      for (int i = 0;  i < size;  ++i)
+        prefix[i + 1] = prefix[i] + Math.abs(opt[i] - r);
+
+      for (int k = 0;  k <= size;  ++k)
+      {
+        cost[r][k]  = INFINITY;
+        count[r][k] = 0;
+
+        for (int n = min;  n <= max && n <= k;  ++n)
+          if (cost[r - 1][k - n] < INFINITY)
+          {
+            int c = cost[r - 1][k - n] + prefix[k] - prefix[k - n];
+
+            if (c < cost[r][k])
+            {
+              cost[r][k]  = c;
+              count[r][k] = n;
+            }
+          }
+      }
+    }
+
+    if (cost[dimRoles][size] >= INFINITY)
+      return false;
+
+    // the participants change their deviation from the one of
+    // non-participation to the cost of the matching
+    deviation += cost[dimRoles][size] - (long)size * (dimRoles + 1);
+
+    for (int i = 0;  i < size;  ++i)
+      deviation += opt[i];
+
+    // hand out the roles, starting with the last participants
+    int k = size;
+
+    for (int r = dimRoles;  r >= 1;  --r)
+    {
+      int n = count[r][k];
+
+      for (int i = k - n;  i < k;  ++i)
+        solution.setRole(members[i], t, r);
+
+      k -= n;
+    }
+
+    return true;
+  }
+}
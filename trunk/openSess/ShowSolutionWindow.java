@@ -4,6 +4,7 @@ import java.awt.Dimension;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.text.NumberFormat;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
@@ -45,7 +46,8 @@ import javax.swing.JTabbedPane;
 public class ShowSolutionWindow
   extends ListEditWindow
 {
-  private JLabel meanSatValue, minSatValue, stdDevValue, targetValue;
+  private JLabel meanSatValue, minSatValue, stdDevValue, targetValue,
+                 lowerBoundValue, gapValue;
   private JPanel topicsPanel, rolesPanel;
   private Color  gColor[];
   private Solver solver;
@@ -103,6 +105,8 @@ public class ShowSolutionWindow
     minSatValue         = new JLabel();
     stdDevValue         = new JLabel();
     targetValue         = new JLabel();
+    lowerBoundValue     = new JLabel();
+    gapValue            = new JLabel();
    
     GridBagConstraints lc = new GridBagConstraints();
     lc.gridx  = 0;
@@ -128,6 +132,12 @@ public class ShowSolutionWindow
     statPanel.add(new JLabel("Target Value:"), lc);
     vc.gridy = 3;
     statPanel.add(targetValue, vc);
+    statPanel.add(new JLabel("Lower Bound:"), lc);
+    vc.gridy = 4;
+    statPanel.add(lowerBoundValue, vc);
+    statPanel.add(new JLabel("Optimality Gap:"), lc);
+    vc.gridy = 5;
+    statPanel.add(gapValue, vc);
 
     lc.weighty = 1.0;
     statPanel.add(Box.createVerticalGlue(), lc);
@@ -260,6 +270,9 @@ public class ShowSolutionWindow
     int      pNumber  = persons.getNumber();
     int      gNumber  = solution.getGroupNumber();
     int      sNumber  = solution.getGroupSize();
+    NumberFormat gapFormat = NumberFormat.getInstance();
+    
+    gapFormat.setMaximumFractionDigits(1);
     
     //System.out.println("update: t" + tNumber + ", p" + pNumber
     //                   + ", s" + sNumber + ", g" + gNumber);
@@ -269,6 +282,24 @@ public class ShowSolutionWindow
     minSatValue.setText("" + solution.getMinimumSatisfaction());
     stdDevValue.setText("" + solution.getStandardDeviation());
     targetValue.setText("" + solution.getTargetValue());
+    if (solver.getLowerBound() >= 0)
+    {
+      lowerBoundValue.setText("" + solver.getLowerBound());
+      gapValue.setText(gapFormat.format(solver.getGap(solution)) + " %");
+    }
+    else
+    {
+      // the bound is shown when it has been calculated in the background
+      lowerBoundValue.setText("calculating...");
+      gapValue.setText("");
+      solver.calculateLowerBoundLater(new Runnable()
+      {
+        public void run()
+        {
+          update();
+        }
+      });
+    }
 
     // Update topic clustering
     for (int g = 1;  g < gNumber+1;  ++g)
@@ -27,37 +27,73 @@ import java.util.Arrays;
 /**
  * Solution encapsulates the data of a... solution.
  * 
+ * As each person attends at most one topic of a group, the roles are
+ * stored compactly: for each person and group one cell holds the
+ * position of the attended topic within the group together with the
+ * role (0 if the person does not attend any topic of the group).
+ * The cells are bytes if groupSize and the number of roles are small
+ * enough, shorts otherwise. getRole() derives the role of a person for
+ * a topic from its cell. The topic grouping must therefore be set
+ * before any roles are set.
+ * 
  * @author andreas
  */
 public class Solution
   implements XMLStateSaving
 {
-  private Solver solver;
-  private String name;
-  private int    group[][];
-  private int    role[][];
-  private double personSat[];
-  private double meanSatisfaction, minSatisfaction, stdDeviation;
-  private int    targetValue;
-  private int    groupNumber;
-  private int    groupSize;
+  private Solver  solver;
+  private Problem problem;        // the data the solution was created for
+  private String  name;
+  private int     group[][];
+  private int     topicGroup[];   // group of each topic, -1 if not set yet
+  private int     topicSlot[];    // position of each topic within its group
+  private byte    cell[];         // (slot+1) << roleBits | role at person*groupNumber+group
+  private short   wideCell[];     // used instead of cell if the values exceed a byte
+  private int     roleBits;
+  private int     roleMask;
+  private double  personSat[];
+  private double  meanSatisfaction, minSatisfaction, stdDeviation;
+  private int     targetValue;
+  private int     groupNumber;
+  private int     groupSize;
+  private long    fingerprint[] = new long[3];   // see getFingerprint()
 
   /**
-   * Constructs a new Solution with the dimensions specified in a Solver object.
+   * Constructs a new Solution with the dimensions of the Problem
+   * of a Solver object.
    * 
    * @param solver a Solver object.
    */
   Solution(Solver solver)
   {
-    int dimTopics = solver.getTopics().getNumber();
-    int dimSessions = solver.getSessionNumber();
-    int dimPersons  = solver.getPersons().getNumber(); 
+    problem         = solver.getProblem();
+    int dimTopics   = problem.getTopicNumber();
+    int dimSessions = problem.getSessionNumber();
+    int dimPersons  = problem.getPersonNumber(); 
     this.solver = solver;
     groupNumber = dimTopics / dimSessions;
     groupSize   = dimSessions;
     group       = new int[groupNumber][groupSize];
-    role        = new int[dimPersons][dimTopics];
+    topicGroup  = new int[dimTopics];
+    topicSlot   = new int[dimTopics];
     personSat   = new double[dimPersons];
+    
+    Arrays.fill(topicGroup, -1);
+    
+    // roles go up to dimRoles+1 (the marker for an unassigned role)
+    int maxRole = problem.getRoleNumber() + 1;
+    
+    roleBits = 1;
+    
+    while ((1 << roleBits) <= maxRole)
+      ++roleBits;
+    
+    roleMask = (1 << roleBits) - 1;
+    
+    if ((groupSize << roleBits) <= 0xFF)
+      cell = new byte[dimPersons * groupNumber];
+    else
+      wideCell = new short[dimPersons * groupNumber];
   }
 
   /**
@@ -119,20 +155,19 @@ public class Solution
    */
   public int topicToGroup(int topic)
   {
-    for (int g = 0;  g < getGroupNumber();  ++g)
-      for (int s = 0;  s < getGroupSize();  ++s)
-        if (getGroupElement(g, s) == topic)
-          return g;
-        
-    return -1;
+    return topicGroup[topic];
   }
   
-  public void clearRoles()
+  /**
+   * Return the position of a topic within its group.
+   * 
+   * @param topic a topic index.
+   * @return the index within the group, undefined if the topic
+   *         is not part of a group.
+   */
+  public int topicToSlot(int topic)
   {
-    int dimPersons = solver.getPersons().getNumber();
-    
-    for (int person = 0;  person < dimPersons;  ++person)
-      Arrays.fill(role[person], 0);  
+    return topicSlot[topic];
   }
   
   /**
@@ -143,7 +178,62 @@ public class Solution
    */
   public int getRole(int person, int topic)
   {
-    return role[person][topic];
+    int g = topicGroup[topic];
+    
+    if (g < 0)
+      return 0;
+    
+    int value = getCell(person*groupNumber + g);
+    
+    if ((value >> roleBits) != topicSlot[topic] + 1)
+      return 0;
+    
+    return value & roleMask;
+  }
+  
+  /**
+   * Copy the topic grouping and the roles of another solution
+   * with the same dimensions.
+   * 
+   * @param from the solution to copy.
+   */
+  void copyAssignment(Solution from)
+  {
+    for (int g = 0;  g < groupNumber;  ++g)
+      System.arraycopy(from.group[g], 0, group[g], 0, groupSize);
+    
+    System.arraycopy(from.topicGroup, 0, topicGroup, 0, topicGroup.length);
+    System.arraycopy(from.topicSlot,  0, topicSlot,  0, topicSlot.length);
+    
+    if (cell != null)
+      System.arraycopy(from.cell, 0, cell, 0, cell.length);
+    else
+      System.arraycopy(from.wideCell, 0, wideCell, 0, wideCell.length);
+  }
+  
+  /**
+   * Return the value of a cell.
+   * 
+   * @param index the index of the cell.
+   * @return the value.
+   */
+  private int getCell(int index)
+  {
+    return cell != null ? cell[index] & 0xFF : wideCell[index] & 0xFFFF;
+  }
+  
+  /**
+   * Set the value of a cell.
+   * 
+   * @param index the index of the cell.
+   * @param value the value.
+   */
+  private void setCell(int index, int value)
+  {
+    if (cell != null)
+      cell[index] = (byte)value;
+    else
+      wideCell[index] = (short)value;
   }
   
   /**
@@ -181,33 +271,48 @@ public class Solution
 	 */
   protected int calculateTargetValue()
   {
-    Persons persons    = solver.getPersons();
-    Topics  topics     = solver.getTopics();
-    int     dimPersons = persons.getNumber();
-    int     dimTopics  = topics.getNumber();
-    
-		int pval[] = new int[dimPersons];
-    int val = 0;
+    int     dimPersons = problem.getPersonNumber();
+    int     dimTopics  = problem.getTopicNumber();
+    int     rank[]     = problem.getRankTable();
+    long    sum = 0, sumSq = 0;
 
     for (int p = 0;  p < dimPersons;  ++p)
     {
+      int pval = 0;
+      
       for (int t = 0;  t < dimTopics; ++t)
         if (getRole(p, t) > 0)
-          pval[p] += persons.getPreferenceIndex(p, t);
+          pval += rank[p*dimTopics + t];
 
-      val += pval[p];
+      sum   += pval;
+      sumSq += (long)pval * pval;
     }
 
-    double mean = (val * 1.0 / dimPersons);
-    double dev = 0;
+    targetValue = targetValue(sum, sumSq, dimPersons, problem.getBalancingWeight());
     
-    for (int p = 0;  p < dimPersons;  ++p)
-      dev += (mean - pval[p]) * (mean - pval[p]);
-
-    dev = Math.sqrt(dev / dimPersons);
-    val += solver.getBalancingWeight() * dev;
-    targetValue = val;
+    return targetValue;
+  }
+  
+  /**
+   * Combine the sum and the sum of squares of the preference ranks
+   * of all persons into a target value: the total rank sum plus the
+   * weighted standard deviation of the persons' rank sums.
+   * The variance is derived from integer sums, so that incremental
+   * calculations (see IncrementalTarget) produce identical values.
+   * 
+   * @param sum             the sum of all persons' rank sums.
+   * @param sumSq           the sum of the squared rank sums.
+   * @param dimPersons      the number of persons.
+   * @param balancingWeight the weight of the standard deviation.
+   * @return the target value.
+   */
+  static int targetValue(long sum, long sumSq, int dimPersons, int balancingWeight)
+  {
+    double dev = Math.sqrt((dimPersons * sumSq - sum * sum) 
+                           / ((double)dimPersons * dimPersons));
+    int    val = (int)sum;
     
+    val += balancingWeight * dev;
     return val;
   }
   
@@ -260,7 +365,14 @@ public class Solution
    */
   public void setGroupElement(int group, int index, int topic)
   {
+    int previous = this.group[group][index];
+    
+    if (topicGroup[previous] == group && topicSlot[previous] == index)
+      topicGroup[previous] = -1;
+    
     this.group[group][index] = topic;
+    topicGroup[topic] = group;
+    topicSlot[topic]  = index;
   }
   
   /**
@@ -268,8 +380,10 @@ public class Solution
    */
   public void clearRoleAssignments()
   {
-    for (int person = 0;  person < solver.getPersons().getNumber();  ++person)
-      Arrays.fill(role[person], 0);
+    if (cell != null)
+      Arrays.fill(cell, (byte)0);
+    else
+      Arrays.fill(wideCell, (short)0);
   }
 
   /**
@@ -280,7 +394,13 @@ public class Solution
    */
   public void setRole(int person, int topic, int role)
   {
-    this.role[person][topic] = role;
+    int g     = topicGroup[topic];
+    int index = person*groupNumber + g;
+    
+    if (role > 0)
+      setCell(index, (topicSlot[topic] + 1) << roleBits | role);
+    else if ((getCell(index) >> roleBits) == topicSlot[topic] + 1)
+      setCell(index, 0);  // only if the person attends this topic
   }
   
   /**
@@ -294,32 +414,99 @@ public class Solution
     personSat[person] = sum;
   }
   
+  /**
+   * Set the statistical values and the target value of the solution
+   * (see Evaluator).
+   * 
+   * @param mean        the mean satisfaction.
+   * @param min         the minimum satisfaction of a person.
+   * @param deviation   the standard deviation of the satisfaction.
+   * @param targetValue the target value.
+   */
+  void setStatistics(double mean, double min, double deviation, int targetValue)
+  {
+    meanSatisfaction = mean;
+    minSatisfaction  = min;
+    stdDeviation     = deviation;
+    this.targetValue = targetValue;
+  }
+  
   /**
    * Evaluate the solution and set the statistical values.
    */
   protected void evaluate()
   {
-    calculateTargetValue();
+    solver.getEvaluator().evaluate(this);
+    calculateFingerprints();
+  }
+
+  /**
+   * Return a 64 bit hash value by which duplicates of the solution
+   * are recognized. It is calculated by evaluate().
+   * 
+   * @param distinct Solver.DISTINCT_SOLUTION for the hash of the whole
+   *                 solution, DISTINCT_ASSIGNMENT for the hash of the
+   *                 topic grouping and the person assignment without
+   *                 the roles, DISTINCT_GROUPING for the hash of the
+   *                 topic grouping only.
+   * @return the hash value.
+   */
+  public long getFingerprint(int distinct)
+  {
+    return fingerprint[distinct];
+  }
+
+  /**
+   * Calculate the hash values returned by getFingerprint(). They are
+   * Zobrist hashes as those of the AssignmentWorker, so they do not
+   * depend on the numbering of the groups.
+   */
+  private void calculateFingerprints()
+  {
+    int  dimTopics  = topicGroup.length;
+    int  dimPersons = personSat.length;
+    long grouping   = Zobrist.grouping(topicGroup);
+    long persons    = 0;
+    long roles      = 0;
     
-    Persons persons = solver.getPersons();
-    Roles   roles   = solver.getRoles();
-    int     dimPersons = persons.getNumber();
-    int     dimTopics  = solver.getTopics().getNumber();
-    int     dimRoles   = solver.getRoles().getNumber();
-    int     dimSessions = solver.getSessionNumber();
-    int     personsPerSession = dimPersons / dimSessions;
-    int     sumMax = 0;
-    boolean debug = false;
-    
-    // Create a vector that holds the maximum achievable roles
-    // in a session, which includes a special role for
-    // non-participation (dimRoles+1).
-    int optRoles[] = new int[dimPersons];
-    int currentRole = 0;
-    int rolesLeft = 0;
-    
-    if (debug)
-      System.out.println("\noptRoles:");
+    for (int p = 0;  p < dimPersons;  ++p)
+      for (int g = 0;  g < groupNumber;  ++g)
+      {
+        int value = getCell(p*groupNumber + g);
+        int slot  = (value >> roleBits) - 1;
+        
+        if (slot < 0)
+          continue;
+        
+        long key = Zobrist.attendanceKey(p, group[g][slot], dimTopics);
+        
+        persons ^= key;
+        roles   ^= Zobrist.roleKey(key, value & roleMask);
+      }
+    
+    fingerprint[Solver.DISTINCT_GROUPING]   = grouping;
+    fingerprint[Solver.DISTINCT_ASSIGNMENT] = grouping ^ persons;
+    fingerprint[Solver.DISTINCT_SOLUTION]   = grouping ^ persons ^ roles;
+  }
+
+  /**
+   * Create a vector that holds the maximum achievable roles
+   * in a session, which includes a special role for
+   * non-participation (dimRoles+1). The optimal role of a person
+   * for a topic is found at the index (rank * dimPersons) / dimTopics,
+   * where rank is the preference rank of the topic.
+   * 
+   * @param problem the Problem.
+   * @return the optimal roles.
+   */
+  static int[] optimalRoles(Problem problem)
+  {
+    int     dimPersons = problem.getPersonNumber();
+    int     dimRoles   = problem.getRoleNumber();
+    int     personsPerSession = dimPersons / problem.getSessionNumber();
+    int     optRoles[] = new int[dimPersons];
+    int     currentRole = 0;
+    int     rolesLeft = 0;
     
     for (int p = 0;  p < dimPersons;  ++p)
     {
@@ -327,70 +514,16 @@ public class Solution
         optRoles[p] = dimRoles + 1;
       else
       {	
-        if (rolesLeft <= 0)
+        if (rolesLeft <= 0 && currentRole < dimRoles)
           // next role: see how many we can use at maximum
-          rolesLeft = roles.getMaximumPerSession(currentRole++);
+          rolesLeft = problem.getMaximumPerSession(currentRole++);
       
         if (rolesLeft-- > 0)
           optRoles[p] = currentRole;
       }
-    
-      if (debug)
-        System.out.println(p + ": " + optRoles[p]);
-    }
-    
-    // Record and sum up the satisfaction values for all participants
-    double sat[][] = new double[dimPersons][dimTopics];
-    double total   = 0;
-    double minSat  = 1.0;
-    
-    for (int p = 0;  p < dimPersons;  ++p)
-    {
-      personSat[p] = 0;
-      
-      for (int t = 0;  t < dimTopics;  ++t)
-      {
-        int actualRole = getRole(p, t);
-        
-        if (actualRole == 0)
-          actualRole = dimRoles+1;
-        
-        int optimalRole = optRoles[(persons.getPreferenceIndex(p, t) * dimPersons) 
-                                   / dimTopics];
-        double s = 1.0 - Math.abs(optimalRole - actualRole) / (double)dimRoles;
-        
-        if (debug)
-          System.out.println(p + "," + t + ": act " + actualRole
-                             + "  opt " + optimalRole + "  sat " 
-                             + s);
-        
-        sat[p][t]     = s;
-        personSat[p] += s;
-        total        += s;
-      }
-    
-      personSat[p] /= dimTopics;
-      
-      if (personSat[p] < minSat)
-        minSat = personSat[p];
-      
-      if (debug)
-        System.out.println("Total satisfaction for P" + p + ": " + personSat[p]);
     }
-
-    double mean = total / (dimPersons * dimTopics);
-    double dev = 0;
     
-    for (int p = 0;  p < dimPersons;  ++p)
-      for (int t = 0;  t < dimTopics;  ++t)
-      {
-        double diff = mean - sat[p][t];
-        dev += diff * diff;
-      }
-    
-    meanSatisfaction = mean;
-    minSatisfaction  = minSat;  
-    stdDeviation     = Math.sqrt(dev / (dimPersons * dimTopics));
+    return optRoles;
   }
 
   /**
@@ -407,6 +540,12 @@ public class Solution
                      + getStandardDeviation() + "\" target=\""
                      + getTargetValue() + "\"/>");
     
+    if (solver.isCompactFormat())
+    {
+      saveCompact(stream, level);
+      return;
+    }
+    
     Indenter.println(stream, level+1, "<topicGroups>");
     
     for (int g = 0;  g < getGroupNumber();  ++g)
@@ -449,6 +588,64 @@ public class Solution
     Indenter.println(stream, level, "</solution>");
   }
 
+  /**
+   * Write the topic groups, the role assignments and the person sums
+   * in the compact form, as lists of numbers (see SolverConstructor).
+   * 
+   * @param stream the PrintWriter to write to.
+   * @param level  the indentation level of the solution element.
+   */
+  private void saveCompact(PrintWriter stream, int level)
+  {
+    int          dimPersons = solver.getPersons().getNumber();
+    int          dimRoles   = solver.getRoles().getNumber();
+    StringBuffer topics     = new StringBuffer();
+    StringBuffer roles      = new StringBuffer();
+    
+    for (int g = 0;  g < groupNumber;  ++g)
+      for (int s = 0;  s < groupSize;  ++s)
+        topics.append(topics.length() == 0 ? "" : " ").append(group[g][s]);
+    
+    Indenter.println(stream, level+1, "<topicGroups topics=\"" + topics + "\"/>");
+    topics.setLength(0);
+    
+    // the topic and the role of each person in each group
+    for (int p = 0;  p < dimPersons;  ++p)
+      for (int g = 0;  g < groupNumber;  ++g)
+      {
+        int value = getCell(p*groupNumber + g);
+        int slot  = (value >> roleBits) - 1;
+        int role  = value & roleMask;
+        
+        if (p + g > 0)
+        {
+          topics.append(' ');
+          roles.append(' ');
+        }
+        
+        if (slot >= 0 && role > 0 && role <= dimRoles)
+        {
+          topics.append(group[g][slot]);
+          roles.append(role);
+        }
+        else
+        {
+          topics.append(-1);
+          roles.append(0);
+        }
+      }
+    
+    Indenter.println(stream, level+1, "<roleAssignments topics=\"" + topics 
+                     + "\" roles=\"" + roles + "\"/>");
+    topics.setLength(0);
+    
+    for (int p = 0;  p < dimPersons;  ++p)
+      topics.append(p == 0 ? "" : " ").append(getPersonSatisfaction(p));
+    
+    Indenter.println(stream, level+1, "<personSums sums=\"" + topics + "\"/>");
+    Indenter.println(stream, level, "</solution>");
+  }
+
   public String debugString()
   {
     int     dimPersons = solver.getPersons().getNumber();
@@ -70,10 +70,13 @@ public class SolutionPanel
 {
   private JFrame              frame;
   private JFormattedTextField topicClustersField, personAssignmentsField, keepBestField,
-      attemptsField;
-  private JButton             solveButton;
-  private JComboBox           printFormatList;
+      attemptsField, threadsField, startTemperatureField, endTemperatureField,
+      reheatField, timeBudgetField, stopGapField;
+  private JButton             solveButton, pauseButton;
+  private JComboBox           printFormatList, assignmentList, scheduleList,
+      distinctList;
   private ProgressMonitor     monitor;
+  private JLabel              telemetryLabel;
   private Timer               timer;
   private String              printDirPath = "../print";
   private XMLStateSaving      stateSaver;
@@ -127,6 +130,15 @@ public class SolutionPanel
     JLabel personAssignmentsLabel = new JLabel("Person Assignment Attempts:");
     JLabel attemptsLabel = new JLabel("Maximum Assignment Attempts:");
     JLabel keepBestLabel = new JLabel("Keep Best Solutions:");
+    JLabel distinctLabel = new JLabel("Keep Only One Solution per:");
+    JLabel threadsLabel = new JLabel("Parallel Threads:");
+    JLabel timeBudgetLabel = new JLabel("Time Budget in Seconds (0 = none):");
+    JLabel stopGapLabel = new JLabel("Stop at Optimality Gap in % (0 = never):");
+    JLabel assignmentLabel = new JLabel("Person Assignment:");
+    JLabel scheduleLabel = new JLabel("Annealing Schedule:");
+    JLabel startTemperatureLabel = new JLabel("Start Temperature (0 = auto):");
+    JLabel endTemperatureLabel = new JLabel("End Temperature (0 = auto):");
+    JLabel reheatLabel = new JLabel("Reheat After Moves (0 = never):");
     topicClustersField = new JFormattedTextField();
     topicClustersField.setValue(new Integer(5));
     topicClustersField.setColumns(4);
@@ -139,6 +151,33 @@ public class SolutionPanel
     keepBestField = new JFormattedTextField();
     keepBestField.setValue(new Integer(10));
     keepBestField.setColumns(4);
+    distinctList = new JComboBox(new String[] { "Person and Role Assignment",
+                                                 "Person Assignment",
+                                                 "Topic Grouping" });
+    threadsField = new JFormattedTextField();
+    threadsField.setValue(new Integer(Runtime.getRuntime().availableProcessors()));
+    threadsField.setColumns(4);
+    timeBudgetField = new JFormattedTextField();
+    timeBudgetField.setValue(new Integer(0));
+    timeBudgetField.setColumns(4);
+    stopGapField = new JFormattedTextField();
+    stopGapField.setValue(new Double(0));
+    stopGapField.setColumns(4);
+    assignmentList = new JComboBox(new String[] { "Simulated Annealing", 
+                                                   "Min-Cost Flow" });
+    scheduleList = new JComboBox(new String[] { "Hill Climbing", 
+                                                 "Geometric Cooling",
+                                                 "Adaptive Cooling" });
+    scheduleList.setSelectedIndex(Annealing.HILL_CLIMBING);
+    startTemperatureField = new JFormattedTextField();
+    startTemperatureField.setValue(new Double(0));
+    startTemperatureField.setColumns(8);
+    endTemperatureField = new JFormattedTextField();
+    endTemperatureField.setValue(new Double(0));
+    endTemperatureField.setColumns(8);
+    reheatField = new JFormattedTextField();
+    reheatField.setValue(new Integer(0));
+    reheatField.setColumns(8);
 
     JPanel valuePanel = new JPanel();
     valuePanel.setLayout(new BoxLayout(valuePanel, BoxLayout.LINE_AXIS));
@@ -151,6 +190,15 @@ public class SolutionPanel
     labelPanel.add(personAssignmentsLabel);
     labelPanel.add(attemptsLabel);
     labelPanel.add(keepBestLabel);
+    labelPanel.add(distinctLabel);
+    labelPanel.add(threadsLabel);
+    labelPanel.add(timeBudgetLabel);
+    labelPanel.add(stopGapLabel);
+    labelPanel.add(assignmentLabel);
+    labelPanel.add(scheduleLabel);
+    labelPanel.add(startTemperatureLabel);
+    labelPanel.add(endTemperatureLabel);
+    labelPanel.add(reheatLabel);
     valuePanel.add(Box.createRigidArea(new Dimension(10, 0)));
 
     JPanel fieldPanel = new JPanel(new GridLayout(0, 1));
@@ -159,12 +207,29 @@ public class SolutionPanel
     fieldPanel.add(personAssignmentsField);
     fieldPanel.add(attemptsField);
     fieldPanel.add(keepBestField);
+    fieldPanel.add(distinctList);
+    fieldPanel.add(threadsField);
+    fieldPanel.add(timeBudgetField);
+    fieldPanel.add(stopGapField);
+    fieldPanel.add(assignmentList);
+    fieldPanel.add(scheduleList);
+    fieldPanel.add(startTemperatureField);
+    fieldPanel.add(endTemperatureField);
+    fieldPanel.add(reheatField);
 
     solveButton = new JButton("Solve");
     solveButton.setActionCommand("solve");
     solveButton.addActionListener(this);
     solveButton.setAlignmentX(Component.CENTER_ALIGNMENT);
     solparPanel.add(solveButton);
+    solparPanel.add(Box.createRigidArea(new Dimension(0, 5)));
+
+    pauseButton = new JButton("Pause");
+    pauseButton.setActionCommand("pause");
+    pauseButton.addActionListener(this);
+    pauseButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+    pauseButton.setEnabled(false);
+    solparPanel.add(pauseButton);
     solparPanel.add(Box.createRigidArea(new Dimension(0, 10)));
 
     JLabel printFormatLabel = new JLabel("Print format:");
@@ -229,14 +294,77 @@ public class SolutionPanel
    *          the number of person assignments to try.
    * @param keepBest
    *          the number of best solutions to keep in the list.
+   * @param threads
+   *          the number of threads used for the calculation.
+   * @param assignment
+   *          the person assignment method (Solver.ANNEALING or 
+   *          Solver.MIN_COST_FLOW).
    */
   public void setSolutionParameters(int topicClusters, int personAssignments,
-                                    int attempts, int keepBest)
+                                    int attempts, int keepBest, int threads,
+                                    int assignment)
   {
     topicClustersField.setValue(new Integer(topicClusters));
     personAssignmentsField.setValue(new Integer(personAssignments));
     attemptsField.setValue(new Integer(attempts));
     keepBestField.setValue(new Integer(keepBest));
+    threadsField.setValue(new Integer(threads));
+    assignmentList.setSelectedIndex(assignment);
+  }
+
+  /**
+   * Sets the time budget of the calculation.
+   * 
+   * @param timeBudget
+   *          the time budget in seconds, 0 for a fixed number of attempts.
+   */
+  public void setTimeBudget(int timeBudget)
+  {
+    timeBudgetField.setValue(new Integer(timeBudget));
+  }
+
+  /**
+   * Sets the optimality gap at which the calculation is stopped.
+   * 
+   * @param stopGap
+   *          the gap in percent of the target value, 0 for never.
+   */
+  public void setStopGap(double stopGap)
+  {
+    stopGapField.setValue(new Double(stopGap));
+  }
+
+  /**
+   * Sets which solutions count as duplicates in the list of the best ones.
+   * 
+   * @param distinct
+   *          Solver.DISTINCT_SOLUTION, DISTINCT_ASSIGNMENT or DISTINCT_GROUPING.
+   */
+  public void setDistinctSolutions(int distinct)
+  {
+    distinctList.setSelectedIndex(distinct);
+  }
+
+  /**
+   * Sets the parameters of the simulated annealing search.
+   * 
+   * @param schedule
+   *          Annealing.HILL_CLIMBING, GEOMETRIC or ADAPTIVE.
+   * @param startTemperature
+   *          the start temperature, 0 for automatic calibration.
+   * @param endTemperature
+   *          the end temperature, 0 for 1/1000 of the start temperature.
+   * @param reheatAfter
+   *          the number of moves without improvement after which the
+   *          temperature is raised again, 0 for never.
+   */
+  public void setAnnealingParameters(int schedule, double startTemperature,
+                                     double endTemperature, int reheatAfter)
+  {
+    scheduleList.setSelectedIndex(schedule);
+    startTemperatureField.setValue(new Double(startTemperature));
+    endTemperatureField.setValue(new Double(endTemperature));
+    reheatField.setValue(new Integer(reheatAfter));
   }
 
   /**
@@ -279,6 +407,97 @@ public class SolutionPanel
     return getIntFromField(keepBestField);
   }
 
+  /**
+   * Return the number of threads used for the calculation.
+   * 
+   * @return the number of threads.
+   */
+  public int getThreads()
+  {
+    return getIntFromField(threadsField);
+  }
+
+  /**
+   * Return the time budget of the calculation.
+   * 
+   * @return the time budget in seconds, 0 for none.
+   */
+  public int getTimeBudget()
+  {
+    return getIntFromField(timeBudgetField);
+  }
+
+  /**
+   * Return the optimality gap at which the calculation is stopped.
+   * 
+   * @return the gap in percent, 0 for never.
+   */
+  public double getStopGap()
+  {
+    return getDoubleFromField(stopGapField);
+  }
+
+  /**
+   * Return which solutions count as duplicates in the list of the best ones.
+   * 
+   * @return Solver.DISTINCT_SOLUTION, DISTINCT_ASSIGNMENT or DISTINCT_GROUPING.
+   */
+  public int getDistinctSolutions()
+  {
+    return distinctList.getSelectedIndex();
+  }
+
+  /**
+   * Return the person assignment method.
+   * 
+   * @return Solver.ANNEALING or Solver.MIN_COST_FLOW.
+   */
+  public int getAssignmentMethod()
+  {
+    return assignmentList.getSelectedIndex();
+  }
+
+  /**
+   * Return the temperature schedule of the annealing search.
+   * 
+   * @return Annealing.HILL_CLIMBING, GEOMETRIC or ADAPTIVE.
+   */
+  public int getAnnealingSchedule()
+  {
+    return scheduleList.getSelectedIndex();
+  }
+
+  /**
+   * Return the start temperature of the annealing search.
+   * 
+   * @return the start temperature, 0 for automatic calibration.
+   */
+  public double getStartTemperature()
+  {
+    return getDoubleFromField(startTemperatureField);
+  }
+
+  /**
+   * Return the end temperature of the annealing search.
+   * 
+   * @return the end temperature, 0 for 1/1000 of the start temperature.
+   */
+  public double getEndTemperature()
+  {
+    return getDoubleFromField(endTemperatureField);
+  }
+
+  /**
+   * Return the number of moves without improvement after which the
+   * annealing search is reheated.
+   * 
+   * @return the number of moves, 0 for never.
+   */
+  public int getReheatAfter()
+  {
+    return getIntFromField(reheatField);
+  }
+
   /**
    * Get the value of a JFormattedField as an int.
    * 
@@ -299,6 +518,26 @@ public class SolutionPanel
     return ((Integer) field.getValue()).intValue();
   }
 
+  /**
+   * Get the value of a JFormattedField as a double.
+   * 
+   * @param field
+   *          the field.
+   * @return the value, converted to double.
+   */
+  protected double getDoubleFromField(JFormattedTextField field)
+  {
+    try
+    {
+      field.commitEdit();
+    }
+    catch (ParseException ex)
+    {
+    }
+
+    return ((Number) field.getValue()).doubleValue();
+  }
+
   /**
    * Process the command "solve" which start a calculation and forward all other
    * commands to the base class.
@@ -313,17 +552,48 @@ public class SolutionPanel
         int personAssignments = getPersonAssignments();
         int attempts = getAttempts();
         int keepBest = getKeepBest();
-
-        monitor = new ProgressMonitor(frame, "Calculating Solutions...", "", 0,
-                                      topicClusters * personAssignments);
+        int timeBudget = Math.max(0, getTimeBudget());
+
+        // with a time budget the progress is measured in seconds;
+        // the figures of the annealing search are shown below the title
+        telemetryLabel = new JLabel(getSolver().getTelemetry().toString());
+        monitor = new ProgressMonitor(frame, new Object[] { "Calculating Solutions...",
+                                                            telemetryLabel },
+                                      "", 0,
+                                      timeBudget > 0 ? timeBudget
+                                      : topicClusters * personAssignments);
         monitor.setProgress(0);
         monitor.setMillisToDecideToPopup(0);
         solveButton.setEnabled(false);
-        getSolver().startSolverTask(topicClusters, personAssignments, attempts, keepBest);
+        pauseButton.setEnabled(true);
+        getSolver().setThreads(Math.max(1, getThreads()));
+        getSolver().setAssignmentMethod(getAssignmentMethod());
+        getSolver().setStopGap(Math.max(0, getStopGap()));
+        getSolver().setDistinctSolutions(getDistinctSolutions());
+        getSolver().setAnnealingParameters(getAnnealingSchedule(),
+                                           getStartTemperature(),
+                                           getEndTemperature(),
+                                           Math.max(0, getReheatAfter()));
+        getSolver().startSolverTask(topicClusters, personAssignments, attempts, keepBest,
+                                    timeBudget);
         timer.start();
         getChangeMonitor().signalChange();
       }
     }
+    else if (command.equals("pause"))
+    {
+      // the progress dialog stays open while the calculation is paused
+      if (getSolver().isPaused())
+      {
+        getSolver().resume();
+        pauseButton.setText("Pause");
+      }
+      else
+      {
+        getSolver().pause();
+        pauseButton.setText("Resume");
+      }
+    }
     else if (command.equals("print"))
     {
       try
@@ -403,41 +673,13 @@ public class SolutionPanel
    */
   protected boolean checkConstraints()
   {
-    boolean ok = true;
+    String violated = getSolver().checkConstraints();
+    boolean ok = violated == null;
     StringBuffer msg = new StringBuffer("The following constraints are violated:\n");
-    Solver solver = getSolver();
-    Roles roles = solver.getRoles();
-    int dimRoles = roles.getNumber();
-    int dimPersons = solver.getPersons().getNumber();
-    int dimSessions = solver.getSessionNumber();
-    int minSum = 0;
-    int maxSum = 0;
-    int perSession = dimPersons / dimSessions;
-
-    for (int r = 0; r < dimRoles; ++r)
-    {
-      minSum += roles.getMinimumPerSession(r);
-      maxSum += roles.getMaximumPerSession(r);
-    }
-
-    if (maxSum < perSession)
-    {
-      ok = false;
-      msg.append("  - The sum of the role maxima (" + maxSum
-                 + ") is less than\n    the number of participants per session ("
-                 + perSession + ")\n");
-    }
-
-    if (minSum > perSession)
-    {
-      ok = false;
-      msg.append("  - The sum of the role minima (" + minSum
-                 + ") exceeds\n    the number of participants per session (" + perSession
-                 + ")\n");
-    }
 
     if (!ok)
     {
+      msg.append(violated);
       msg.append("Please correct these problems before trying again.");
       JOptionPane.showMessageDialog(this, msg, "Constraint Violation",
                                     JOptionPane.ERROR_MESSAGE);
@@ -463,6 +705,7 @@ public class SolutionPanel
     {
       Solver solver = getSolver();
       monitor.setProgress(solver.getCurrent());
+      telemetryLabel.setText(solver.getTelemetry().toString());
       String s = solver.getMessage();
 
       if (s != null)
@@ -475,6 +718,8 @@ public class SolutionPanel
         timer.stop();
 
         solveButton.setEnabled(true);
+        pauseButton.setEnabled(false);
+        pauseButton.setText("Pause");
         setSelectedIndex(0);
       }
     }
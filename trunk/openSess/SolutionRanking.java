@@ -0,0 +1,315 @@
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package openSess;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * SolutionRanking keeps the best solutions found by a calculation,
+ * ordered by Solution.greaterThan(). It is a binary heap with the worst
+ * kept solution at its root, so a new solution is added or rejected in
+ * O(log n) time. Solutions which are equally good keep the order in
+ * which they were added, as in a list where each solution is inserted
+ * after the solutions that are not worse.
+ *
+ * The kept solutions are also found by their fingerprints (see
+ * Solution.getFingerprint()). A solution with the same fingerprint as
+ * a kept one is a duplicate: it replaces the kept solution if it is
+ * better and is rejected otherwise, in constant time.
+ *
+ * All methods are synchronized, solutions may be added by several
+ * threads.
+ */
+class SolutionRanking
+{
+  private Entry     heap[]       = new Entry[16];
+  private int       size;
+  private long      added;                          // number of solutions added, for the order of ties
+  private int       distinct     = Solver.DISTINCT_SOLUTION;
+  private Hashtable fingerprints = new Hashtable();  // Long -> Entry
+
+  /**
+   * A solution and its number in the order of addition.
+   */
+  private static class Entry
+  {
+    Solution solution;
+    long     seq;
+    Long     fingerprint;
+    int      index;      // position in the heap
+
+    Entry(Solution solution, long seq, Long fingerprint)
+    {
+      this.solution    = solution;
+      this.seq         = seq;
+      this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Return true if this entry is ranked behind another one.
+     *
+     * @param other the other entry.
+     * @return true if this entry is worse.
+     */
+    boolean worseThan(Entry other)
+    {
+      if (other.solution.greaterThan(solution))
+        return true;
+
+      return !solution.greaterThan(other.solution) && seq > other.seq;
+    }
+  }
+
+  /**
+   * Add a solution if it is among the best ones and not a duplicate
+   * of a better one.
+   *
+   * @param solution the solution.
+   * @param capacity the maximum number of solutions to keep.
+   * @param distinct which solutions are duplicates, Solver.DISTINCT_SOLUTION,
+   *                 DISTINCT_ASSIGNMENT or DISTINCT_GROUPING.
+   * @return true if the solution has been added.
+   */
+  synchronized boolean add(Solution solution, int capacity, int distinct)
+  {
+    if (distinct != this.distinct)
+      reindex(distinct);
+
+    // drop the worst solutions if the capacity has been reduced
+    while (size > Math.max(0, capacity))
+      removeAt(0);
+
+    Long  fingerprint = Long.valueOf(solution.getFingerprint(distinct));
+    Entry duplicate   = (Entry)fingerprints.get(fingerprint);
+
+    if (duplicate != null)
+    {
+      if (!solution.greaterThan(duplicate.solution))
+        return false;
+
+      removeAt(duplicate.index);
+    }
+
+    if (size >= capacity)
+    {
+      // a full ranking only takes a solution that is better than its worst
+      if (size == 0 || !solution.greaterThan(heap[0].solution))
+        return false;
+
+      removeAt(0);
+    }
+
+    if (size == heap.length)
+    {
+      Entry grown[] = new Entry[2 * size];
+
+      System.arraycopy(heap, 0, grown, 0, size);
+      heap = grown;
+    }
+
+    Entry entry = new Entry(solution, added++, fingerprint);
+
+    fingerprints.put(fingerprint, entry);
+    heap[size] = entry;
+    siftUp(size++);
+    return true;
+  }
+
+  /**
+   * Return whether a solution with a given mean satisfaction may enter
+   * the ranking. This is false if the ranking is full and the mean
+   * satisfaction is lower than that of the worst kept solution, in the
+   * precision compared by Solution.greaterThan(). A solution can thus
+   * be rejected before it is evaluated completely.
+   *
+   * @param meanSatisfaction the mean satisfaction of the solution.
+   * @param capacity         the maximum number of solutions to keep.
+   * @return false if the solution cannot enter the ranking.
+   */
+  synchronized boolean admits(double meanSatisfaction, int capacity)
+  {
+    if (size < capacity)
+      return true;
+
+    if (size == 0)
+      return false;
+
+    // the margin covers the rounding errors of the Evaluator, which
+    // sums up the satisfaction values one by one
+    int mean  = (int)((meanSatisfaction + 1e-6) * 1000);
+    int worst = (int)(heap[0].solution.getMeanSatisfaction() * 1000);
+
+    return mean >= worst;
+  }
+
+  /**
+   * Remove all solutions.
+   */
+  synchronized void clear()
+  {
+    Arrays.fill(heap, 0, size, null);
+    size = 0;
+    fingerprints.clear();
+  }
+
+  /**
+   * Return the number of solutions.
+   *
+   * @return the number of solutions.
+   */
+  synchronized int size()
+  {
+    return size;
+  }
+
+  /**
+   * Return the solutions, best first.
+   *
+   * @return a new Vector of the solutions.
+   */
+  synchronized Vector toVector()
+  {
+    Entry sorted[] = new Entry[size];
+
+    System.arraycopy(heap, 0, sorted, 0, size);
+    Arrays.sort(sorted, new Comparator()
+    {
+      public int compare(Object a, Object b)
+      {
+        if (((Entry)a).worseThan((Entry)b))
+          return 1;
+
+        return ((Entry)b).worseThan((Entry)a) ? -1 : 0;
+      }
+    });
+
+    Vector solutions = new Vector(size);
+
+    for (int i = 0;  i < size;  ++i)
+      solutions.addElement(sorted[i].solution);
+
+    return solutions;
+  }
+
+  /**
+   * Remove an entry from the heap.
+   *
+   * @param i the index of the entry.
+   */
+  private void removeAt(int i)
+  {
+    Entry removed = heap[i];
+
+    if (fingerprints.get(removed.fingerprint) == removed)
+      fingerprints.remove(removed.fingerprint);
+
+    heap[i]    = heap[--size];
+    heap[size] = null;
+
+    if (i < size)
+    {
+      // the last entry takes the place, it may have to move either way
+      Entry moved = heap[i];
+
+      siftUp(i);
+      siftDown(moved.index);
+    }
+  }
+
+  /**
+   * Find the kept solutions by other fingerprints. If some of them
+   * are duplicates of each other now, only the last one is found.
+   *
+   * @param distinct Solver.DISTINCT_SOLUTION, DISTINCT_ASSIGNMENT
+   *                 or DISTINCT_GROUPING.
+   */
+  private void reindex(int distinct)
+  {
+    this.distinct = distinct;
+    fingerprints.clear();
+
+    for (int i = 0;  i < size;  ++i)
+    {
+      heap[i].fingerprint = Long.valueOf(heap[i].solution.getFingerprint(distinct));
+      fingerprints.put(heap[i].fingerprint, heap[i]);
+    }
+  }
+
+  /**
+   * Move an entry up to its place in the heap.
+   *
+   * @param i the index of the entry.
+   */
+  private void siftUp(int i)
+  {
+    Entry entry = heap[i];
+
+    while (i > 0)
+    {
+      int parent = (i - 1) / 2;
+
+      if (!entry.worseThan(heap[parent]))
+        break;
+
+      heap[i]       = heap[parent];
+      heap[i].index = i;
+      i             = parent;
+    }
+
+    heap[i]     = entry;
+    entry.index = i;
+  }
+
+  /**
+   * Move an entry down to its place in the heap.
+   *
+   * @param i the index of the entry.
+   */
+  private void siftDown(int i)
+  {
+    Entry entry = heap[i];
+
+    for (;;)
+    {
+      int child = 2 * i + 1;
+
+      if (child >= size)
+        break;
+
+      if (child + 1 < size && heap[child + 1].worseThan(heap[child]))
+        ++child;
+
+      if (!heap[child].worseThan(entry))
+        break;
+
+      heap[i]       = heap[child];
+      heap[i].index = i;
+      i             = child;
+    }
+
+    heap[i]     = entry;
+    entry.index = i;
+  }
+}
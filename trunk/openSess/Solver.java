@@ -24,12 +24,18 @@
  */
 
 package openSess;
-import java.text.NumberFormat;
-import java.util.Arrays;
-import java.util.Random;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.DefaultListModel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 /**
  * This is the central class of the solution algorithm.
@@ -38,12 +44,38 @@ import javax.swing.DefaultListModel;
  * the solution algorithm and analysis functions.
  * The algorithm must be executed in a different thread, therefore
  * it is implemented as the doTask() method of a TaskMonitor.
+ * The individual solution attempts are calculated by AssignmentWorkers;
+ * if more than one thread is configured, the attempts run in parallel
+ * on an ExecutorService.
+ * Instead of a fixed number of attempts, the calculation can also be
+ * given a time budget (see startSolverTask()).
+ * The calculation does not read Persons, Topics and Roles, but a
+ * Problem snapshot of their data taken when it is started, so these
+ * may be edited while it runs.
  *  
  * @author Gero Scholz
  */
 public class Solver
 extends TaskMonitor
 {
+  /** Assign persons to sessions by simulated annealing. */
+  public static final int  ANNEALING     = 0;
+  /** Assign persons to sessions exactly by a min-cost flow per topic group. */
+  public static final int  MIN_COST_FLOW = 1;
+  
+  /** Keep only solutions which differ in the persons or in the roles. */
+  public static final int  DISTINCT_SOLUTION   = 0;
+  /** Keep only solutions which differ in the persons of the sessions. */
+  public static final int  DISTINCT_ASSIGNMENT = 1;
+  /** Keep only solutions which differ in the topic grouping. */
+  public static final int  DISTINCT_GROUPING   = 2;
+  /** the names of the DISTINCT_ values in the files */
+  public static final String DISTINCT_NAMES[] = { "solution", "assignment", "grouping" };
+  
+  private static final int PUBLISH_MILLIS = 250;   // minimum time between list updates
+  private static final int PROBE_TRIES   = 10000;  // tries of an attempt with a time 
+                                                  // budget before the speed is known
+  
   private int              dimSessions;
   private int              dimShuffle   = 100;  // the greater the more randomly
                                                 // preferences will
@@ -60,21 +92,47 @@ extends TaskMonitor
   private Roles            roles;
   private Locations        locations;
   private Times            times;
-  private Vector           solutions;
-  private DefaultListModel solutionNames;
+  private SolutionRanking  ranking      = new SolutionRanking();
+  private volatile Vector  solutions;          // published ranking, best first
+  private DefaultListModel solutionNames;      // changed on the event dispatch thread only
+  private boolean          publishPending;     // guarded by ranking
+  private Timer            publishTimer;       // used on the event dispatch thread only
   private int              dimTryTopicClustering;
   private int              dimTryPersonAssignment;
   private int              tries;
   private int              keepBest;
-  private boolean          debug;
-  private Solution         solution;
-  private int              bestAssignment[][];
-  private int              topicRole[][];
-  private int              personRole[][];
-  private int              seqPersons[][];
-  private NumberFormat     compactFormat;
-  private boolean          solved;
-  private int              candidates[];
+  private int              distinct     = DISTINCT_SOLUTION;
+  private boolean          compactFormat;      // save lists of numbers instead of elements
+  private int              threads      = 1;
+  private int              assignment   = ANNEALING;
+  private int              schedule     = Annealing.HILL_CLIMBING;
+  private double           startTemperature;   // 0 = calibrate automatically
+  private double           endTemperature;     // 0 = 1/1000 of the start temperature
+  private int              reheatAfter;        // 0 = never reheat
+  private ExecutorService  executor;
+  private int              attemptsDone;
+  private int              timeBudget;         // seconds, 0 = fixed attempt counts
+  private volatile long    startTime;          // start of the current task
+  private long             deadline;
+  private Vector           budgetDone;         // clusterings of the budget run
+  private int              budgetGroup[];      // current clustering of the budget run
+  private int              budgetTryT;
+  private int              budgetTryP;
+  private int              budgetStarted;
+  private boolean          budgetAbandon;      // no more attempts for the current clustering
+  private boolean          budgetCreating;     // a thread creates the next clustering
+  private int              bestFirstTarget;    // best first attempt of all clusterings
+  private long             movesMade;          // annealing moves of the finished attempts
+  private long             moveMillis;         // time used for these moves
+  private volatile int     lowerBound   = -1;  // -1 = not calculated yet
+  private Problem          boundProblem;       // Problem whose bound is being calculated
+  private Vector           boundListeners = new Vector();  // run when it is known
+  private double           stopGap;            // percent, 0 = never stop early
+  private volatile boolean gapReached;
+  private LongHashSet      knownAssignments = new LongHashSet();
+  private Evaluator        evaluator;
+  private Problem          problem;
+  private SolverTelemetry  telemetry    = new SolverTelemetry();
   
   /*
    * currently there is a tendency to find an ideal solution for some persons
@@ -101,7 +159,6 @@ extends TaskMonitor
     times         = new Times(dimPersons / dimSessions);
     solutions     = new Vector();
     solutionNames = new DefaultListModel();
-    candidates    = new int[dimPersons];
   }
 
   /**
@@ -176,7 +233,9 @@ extends TaskMonitor
   }
   
   /**
-   * Return the list of solutions.
+   * Return the list of solutions, best first, as last shown in the
+   * list of solution names. The list is replaced as a whole when new
+   * solutions are published; it must not be modified.
    * 
    * @return the list of solutions.
    */
@@ -186,7 +245,8 @@ extends TaskMonitor
   }
   
   /**
-   * Return the list of solution names.
+   * Return the list of solution names. It is only changed on the
+   * event dispatch thread.
    * 
    * @return the list of solution names.
    */
@@ -206,673 +266,1294 @@ extends TaskMonitor
   }
   
   /**
-   * Add a solution to the list of solutions.
+   * Set which solutions count as duplicates: of several solutions
+   * with the same fingerprint (see Solution.getFingerprint()) only
+   * the best is kept in the list.
    * 
-   * @param solution
+   * @param distinct DISTINCT_SOLUTION, DISTINCT_ASSIGNMENT or DISTINCT_GROUPING.
    */
-  public void addSolution(Solution solution)
+  public void setDistinctSolutions(int distinct)
   {
+    this.distinct = distinct;
+  }
+  
+  /**
+   * Return which solutions count as duplicates.
+   * 
+   * @return DISTINCT_SOLUTION, DISTINCT_ASSIGNMENT or DISTINCT_GROUPING.
+   */
+  public int getDistinctSolutions()
+  {
+    return distinct;
+  }
+  
+  /**
+   * Set whether the preferences and the solutions are saved in the
+   * compact form, with lists of numbers in attributes instead of an
+   * element per number (see SolverConstructor).
+   * 
+   * @param compactFormat true for the compact form.
+   */
+  public void setCompactFormat(boolean compactFormat)
+  {
+    this.compactFormat = compactFormat;
+  }
+  
+  /**
+   * Return whether the data is saved in the compact form.
+   * 
+   * @return true for the compact form.
+   */
+  public boolean isCompactFormat()
+  {
+    return compactFormat;
+  }
+  
+  /**
+   * Set the number of threads used to calculate solution attempts.
+   * A value of 1 calculates all attempts one after another in the
+   * solver task itself.
+   * 
+   * @param threads the number of threads.
+   */
+  public void setThreads(int threads)
+  {
+    this.threads = threads;
+  }
+  
+  /**
+   * Return the number of threads used to calculate solution attempts.
+   * 
+   * @return the number of threads.
+   */
+  public int getThreads()
+  {
+    return threads;
+  }
+  
+  /**
+   * Set the method used to assign persons to the sessions of a
+   * topic clustering: ANNEALING or MIN_COST_FLOW.
+   * 
+   * @param assignment the assignment method.
+   */
+  public void setAssignmentMethod(int assignment)
+  {
+    this.assignment = assignment;
+  }
+  
+  /**
+   * Return the method used to assign persons to sessions.
+   * 
+   * @return ANNEALING or MIN_COST_FLOW.
+   */
+  public int getAssignmentMethod()
+  {
+    return assignment;
+  }
+  
+  /**
+   * Set the parameters of the simulated annealing search
+   * (see Annealing for details).
+   * 
+   * @param schedule         Annealing.HILL_CLIMBING, GEOMETRIC or ADAPTIVE.
+   * @param startTemperature the start temperature, 0 to calibrate it 
+   *                         automatically.
+   * @param endTemperature   the end temperature of the geometric schedule,
+   *                         0 for 1/1000 of the start temperature.
+   * @param reheatAfter      the number of moves without improvement after
+   *                         which the temperature is raised again, 0 for never.
+   */
+  public void setAnnealingParameters(int schedule, double startTemperature,
+                                     double endTemperature, int reheatAfter)
+  {
+    this.schedule         = schedule;
+    this.startTemperature = startTemperature;
+    this.endTemperature   = endTemperature;
+    this.reheatAfter      = reheatAfter;
+  }
+  
+  /**
+   * Return the temperature schedule of the annealing search.
+   * 
+   * @return Annealing.HILL_CLIMBING, GEOMETRIC or ADAPTIVE.
+   */
+  public int getAnnealingSchedule()
+  {
+    return schedule;
+  }
+  
+  /**
+   * Return the start temperature of the annealing search.
+   * 
+   * @return the start temperature, 0 for automatic calibration.
+   */
+  public double getStartTemperature()
+  {
+    return startTemperature;
+  }
+  
+  /**
+   * Return the end temperature of the geometric annealing schedule.
+   * 
+   * @return the end temperature, 0 for 1/1000 of the start temperature.
+   */
+  public double getEndTemperature()
+  {
+    return endTemperature;
+  }
+  
+  /**
+   * Return the number of moves without improvement after which the
+   * annealing search is reheated.
+   * 
+   * @return the number of moves, 0 for never.
+   */
+  public int getReheatAfter()
+  {
+    return reheatAfter;
+  }
+  
+  /**
+   * Set the optimality gap at which the calculation is stopped: as soon
+   * as the best solution is within this gap of the lower bound, no
+   * further attempts are started.
+   * 
+   * @param stopGap the gap in percent of the target value, 0 for never.
+   */
+  public void setStopGap(double stopGap)
+  {
+    this.stopGap = stopGap;
+  }
+  
+  /**
+   * Return the optimality gap at which the calculation is stopped.
+   * 
+   * @return the gap in percent, 0 for never.
+   */
+  public double getStopGap()
+  {
+    return stopGap;
+  }
+  
+  /**
+   * Return a lower bound for the target value of all solutions
+   * (see LowerBound), if it has been calculated for the current
+   * Problem. This does not wait for the calculation.
+   * 
+   * @return the lower bound, -1 if it is not known yet.
+   */
+  public int getLowerBound()
+  {
+    return lowerBound;
+  }
+  
+  /**
+   * Calculate the lower bound for the current Problem, unless it is
+   * known already. If another thread is calculating it, this waits for
+   * its result. The calculation takes a while for large problems,
+   * so this must not be called by the GUI thread, which uses
+   * calculateLowerBoundLater() instead. The Solver is not locked
+   * during the calculation.
+   * 
+   * @return the lower bound, -1 if the thread has been interrupted.
+   */
+  public int calculateLowerBound()
+  {
+    Problem calculated;
     
-    // Find the right place to insert the new solution into the sorted list
-    int position = -1;
-    int size = solutions.size();
-    
-    for (int i = 0;  position < 0 && i < size;  ++i)
-     if (solution.greaterThan((Solution)solutions.elementAt(i)))
-       position = i;
+    synchronized (this)
+    {
+      try
+      {
+        while (lowerBound < 0 && boundProblem != null && boundProblem == getProblem())
+          wait();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        return lowerBound;
+      }
+      
+      if (lowerBound >= 0)
+        return lowerBound;
       
-    if (position < 0)
+      calculated   = getProblem();
+      boundProblem = calculated;
+    }
+    
+    int    bound     = -1;
+    Vector listeners;
+    
+    try
+    {
+      bound = new LowerBound(calculated).calculate();
+    }
+    finally
     {
-      // append at end if required size not yet reached
-      if (size < keepBest)
+      synchronized (this)
       {
-        solutions.addElement(solution);
-        solutionNames.addElement(solution.getName());
+        // the bound is dropped if the data has been changed meanwhile
+        if (problem == calculated && bound >= 0)
+          lowerBound = bound;
+        
+        if (boundProblem == calculated)
+          boundProblem = null;
+        
+        listeners      = boundListeners;
+        boundListeners = new Vector();
+        notifyAll();
       }
+      
+      for (int i = 0;  i < listeners.size();  ++i)
+        SwingUtilities.invokeLater((Runnable)listeners.elementAt(i));
     }
-    else
+    
+    return bound;
+  }
+  
+  /**
+   * Calculate the lower bound on the thread pool of the tasks, unless
+   * it is known already. If it is being calculated already, no second
+   * calculation is started.
+   * 
+   * @param done run on the event dispatch thread when the calculation
+   *             has ended.
+   */
+  public void calculateLowerBoundLater(Runnable done)
+  {
+    synchronized (this)
     {
-      // insert at position
-      solutions.insertElementAt(solution, position);
-      solutionNames.insertElementAt(solution.getName(), position);
-
-      // Prune list to required size
-      if (solutions.size() > keepBest)
+      if (lowerBound >= 0)
       {
-        solutions.removeElementAt(keepBest);
-        solutionNames.removeElementAt(keepBest);
+        SwingUtilities.invokeLater(done);
+        return;
       }
+      
+      boundListeners.add(done);
+      
+      // the running calculation runs done when it has ended
+      if (boundProblem != null)
+        return;
     }
+    
+    TaskMonitor.execute(new Runnable()
+    {
+      public void run()
+      {
+        calculateLowerBound();
+      }
+    });
   }
   
   /**
-   * Start a solution calculation as a separate task.
-   * This is neccessary in order not to block the GUI thread.
+   * Return the optimality gap of a solution, i.e. the part of its
+   * target value which might be saved at most by a better solution.
    * 
-   * @param dimTryTopicClustering  the number of topic clusterings to try.
-   * @param dimTryPersonAssignment the number of topic/person assignments to try.
-   * @param tries                  the maximum number of person assignment attempts.
-   * @param keepBest               the number of best solutions to keep in the list.
+   * @param solution the solution.
+   * @return the gap in percent of the target value.
    */
-  public void startSolverTask(int dimTryTopicClustering, 
-                             int dimTryPersonAssignment,
-                             int tries,
-                             int keepBest)
+  public double getGap(Solution solution)
   {
-    final Solver theSolverItself = this;
-    this.dimTryTopicClustering   = dimTryTopicClustering;
-    this.dimTryPersonAssignment  = dimTryPersonAssignment;
-    this.tries                   = tries;
-    this.keepBest                = keepBest;
-    startTask();
+    return getGap(solution.getTargetValue());
   }
   
-
   /**
-   * Perform the calculation of solutions.
-   * This should not be called in a GUI thread, use startSolverTask()
-   * instead.
+   * Return the optimality gap of a target value (see getGap(Solution)).
+   * 
+   * @param target the target value.
+   * @return the gap in percent of the target value, -1 if the lower
+   *         bound is not known yet.
    */
-  protected void doTask()
+  public double getGap(int target)
   {
-  	// added update of preference index -- GS - 2005-02-22
-    persons.createPreferenceIndex();
+    int bound = lowerBound;
     
-/*    
-    System.out.println("\n" + "Die Personen und ihre Prferenzen:");
-    System.out.print("\n" + persons);
-
-    System.out.println("\n" + "Die Personen und ihre Ranglisten je Thema:");
-    System.out.println("\n" + Persons.emptyName() + "   "
-                       + topics.toHeaderString("  "));
-    System.out.print(persons.ranks());
-    System.out.println(Persons.emptyName() + "   "
-                       + topics.toHeaderString("  "));
-*/
+    if (bound < 0)
+      return -1;
     
-    // calculate attractiveness of topics
-    topics.calcPrefs();
-    //System.out.println("\nDie Themen, geordnet nach summierter Prferenz");
-    //System.out.println("\n" + topics);
-
-    // calculate distance matrix for each topic pair
-    topics.calcDist(persons);
-    //System.out.print("Die Abstandsmatrix zwischen den Themen:\n"
-    //                 + topics.distToString());
-
-    // create topic groups using a heuristic approach to minimize
-    // preference conflicts for all persons;
-    // make several tries
-    solutionNames.removeAllElements();
-    solutions.removeAllElements();
-    allocate();
-
-    Vector  done = new Vector();
-    int     dimTopics = topics.getNumber();
+    if (target <= 0)
+      return 0;
     
-    for (int tryT = 0; tryT < dimTryTopicClustering; tryT++)
-    {
-      setMessage("Topic Clustering Attempt " + tryT);
-      
-      int topicGroup[] = topics.createGroup(dimSessions, done, dimTopics
-                                                               * dimTopics
-                                                               * 100,
-                                            tryT * 12345 + 678);
-/*
-       System.out.print("\nGruppierung der Themen (Versuch "
-                       + tryT
-                       + "):\n"
-                       + topics.groupsToString(topicGroup, dimTopics
-                                                           / dimSessions));
-*/
-      done.add(topicGroup);
-
-      // for each clustering we try several assigments
-      // of persons to topics (and roles)
-      for (int tryP = 0; tryP < dimTryPersonAssignment; tryP++)
-      {
-        setCurrent(tryT*dimTryPersonAssignment + tryP);
-        
-        if (taskWasCanceled())
-          return;
-        
-        // first the assignment is done without a specific role
-        assignPersonsToSessions(topicGroup, tryP * 4711 + 8812);
-        
-        // thereafter the roles are assigned
-        assignRolesAlternative();
-
-        // System.out.print(pt);
-        
-        if (isValidSolution())
-          addSolution(createSolution(tryT*dimTryPersonAssignment + tryP));
-      }
-    }
+    return 100.0 * Math.max(0, target - bound) / target;
   }
   
   /**
-   * Return true if the PTAlloc currently holds a valid solution.
+   * Set an ExecutorService on which the solution attempts are run.
+   * If no executor is set, a thread pool with getThreads() threads
+   * is created for each calculation. 
    * 
-   * @return true if the solution is valid, false otherwise.
+   * @param executor the ExecutorService or null.
    */
-	public boolean isValidSolution()
-	{
-	  return solved;
-	}
-
+  public void setExecutor(ExecutorService executor)
+  {
+    this.executor = executor;
+  }
+  
   /**
-   * Allocates global data structures for the algorithm.
-   * It creates the necessary arrays which are used in subsequent
-   * calculations. Each calculation must be set up by a call to 
-   * assignPersonsToSessions().
+   * Add a solution to the ranking of the best solutions. The list of
+   * solutions and the list model of their names are updated on the
+   * event dispatch thread, at most every PUBLISH_MILLIS milliseconds.
+   * This method may be called from several solver threads at once.
+   * 
+   * @param solution
    */
-  public void allocate()
+  public void addSolution(Solution solution)
   {
-    debug            = false;
-    this.solved      = false;
-    
-    int     dimPersons     = persons.getNumber();
-    int     dimTopics      = topics.getNumber();
-    int     dimRoles       = roles.getNumber();
-    int     nAssignments = dimPersons * dimTopics / dimSessions;
+    if (!ranking.add(solution, keepBest, distinct))
+      return;
     
-    bestAssignment   = new int[dimPersons][dimTopics];
-    topicRole        = new int[dimTopics][dimRoles + 1];
-    personRole       = new int[dimPersons][dimRoles  + 1];
-    seqPersons       = new int[nAssignments + 1][2];
-    
-    // Prepare a number formatter
-    compactFormat = NumberFormat.getInstance();
-    compactFormat.setMinimumFractionDigits(3);
-    compactFormat.setMaximumFractionDigits(3);
+    synchronized (ranking)
+    {
+      if (publishPending)
+        return;
+      
+      publishPending = true;
+    }
     
-    if (debug)
+    SwingUtilities.invokeLater(new Runnable()
     {
-      System.out
-          .println("\nPersonen und Prferenzen bei gegebener Themengruppierung:");
-      System.out.println("\n" + persons.emptyName() + ":   "
-                         + topics.toHeaderString("   "));
-      for (int p = 0;  p < dimPersons;  p++)
+      public void run()
       {
-        System.out.print(persons.getName(p) + ":");
-        for (int t = 0;  t < dimTopics; t++)
+        if (publishTimer == null)
         {
-          String tmp = "    " + persons.getPreferenceIndex(p, t);
-          System.out.print(tmp.substring(tmp.length() - 4));
+          publishTimer = new Timer(PUBLISH_MILLIS, new ActionListener()
+          {
+            public void actionPerformed(ActionEvent e)
+            {
+              publish();
+            }
+          });
+          publishTimer.setRepeats(false);
         }
         
-        System.out.println();
+        if (!publishTimer.isRunning())
+          publishTimer.start();
       }
-    }
+    });
   }
-
+  
   /**
-   * Initialize a calculation by performing a first assignment 
-   * without specific roles.
-   * 
-   * @param groups  the group of topics to work on.
-   * @param tries   the maximum number of tries.
-   * @param seed    the seed for the random number generator.
+   * Update the list of solutions and the list model of their names
+   * from the ranking. This must be called on the event dispatch thread.
    */
-  public void assignPersonsToSessions(int[] groups, long seed)
+  private void publish()
   {
-    int     dimPersons     = persons.getNumber();
-    int     dimTopics      = topics.getNumber();
-    int     dimSessions    = getSessionNumber();
-    int     unassignedRole = getRoles().getNumber() + 1;  // Marker for an unassigned role
-
-    // Start a new solution
-    solution = new Solution(this);
+    synchronized (ranking)
+    {
+      publishPending = false;
+    }
+    
+    Vector previous = solutions;
+    Vector current  = ranking.toVector();
+    
+    solutions = current;
     
-    // Remember the topic grouping in the solution
-    for (int gr = 0;  gr < groups.length;  ++gr)
+    // only the names of changed entries are set, so that the list
+    // is not rebuilt completely
+    for (int i = 0;  i < current.size();  ++i)
     {
-      int groupIndex = 0;
+      String name = ((Solution)current.elementAt(i)).getName();
       
-      for (int t = 0;  t < dimTopics;  ++t)
-        if (groups[t] == gr)
-          solution.setGroupElement(gr, groupIndex++, t);
+      if (i >= solutionNames.size())
+        solutionNames.addElement(name);
+      else if (i >= previous.size() || previous.elementAt(i) != current.elementAt(i))
+        solutionNames.setElementAt(name, i);
     }
-
-    // Erase bestAssignment
-    for (int person = 0;  person < dimPersons;  ++person)
-      Arrays.fill(bestAssignment[person], 0);
     
-    // we generate a legal assignment as a starting point;
-    for (int gr = 0; gr < groups.length / dimSessions; gr++)
-      for (int p = 0; p < dimPersons; p++)
-      {
-        int seq = 0;
-        
-        for (int t = 0; t < dimTopics; t++)
-          if (groups[t] == gr)
-          {
-            if (p / (dimPersons / dimSessions) == seq)
-              solution.setRole(p, t, unassignedRole);
-
-            ++seq;
-          }
-      }
-
-    int target = solution.calculateTargetValue();
-
-    if (debug)
+    if (solutionNames.size() > current.size())
+      solutionNames.removeRange(current.size(), solutionNames.size() - 1);
+  }
+  
+  /**
+   * Update the list of solutions and the list model of their names
+   * immediately and wait until this is done. This is used at the end
+   * of a calculation or of loading a file.
+   */
+  void publishNow()
+  {
+    if (SwingUtilities.isEventDispatchThread())
     {
-      System.out.println("\n" + persons.emptyName() + ":  "
-                         + topics.toHeaderString(" "));
-      System.out.println(this + "target=" + target);
+      publish();
+      return;
     }
-
-    // again we apply simulated annealing; we try to swap people
-    // between sessions of the same group
-
-    // simulated annealing; we look for better solutions and
-    // adopt them in most cases (80%) as a starting point for the next trial
-    // sometimes we accept worse solutions and temporarily lower the
-    // expectation level
-
-    int bestTargetTotal = Integer.MAX_VALUE;
-    int bestTarget = Integer.MAX_VALUE;
-    int lastTarget = target;
-    Random rand = new Random();
     
-    if (seed != 0)
-      rand = new Random(seed);
-
-    for (int y = 0; y < tries; y++)
-    {
-      // modify constellation, later restore possible
-      int p1 = 0, t1 = 0, p2 = 0, t2 = 0;
-      p1 = rand.nextInt(dimPersons);
-      t1 = rand.nextInt(dimTopics / dimSessions);
-      // look for a topic the selected person is assigned to
-      for (int t = 0; t < dimTopics; t++)
-        if (solution.getRole(p1, t) > 0)
-          if (t1-- <= 0)
-          {
-            t1 = t;
-            break;
-          }
-
-        // pick a member of another topic of the same session
-      int n = rand.nextInt(dimPersons - dimPersons / dimSessions);
-      
-      for (int t = 0;  t < dimTopics;  t++)
-        if (groups[t] == groups[t1] && t1 != t)
-          for (int p = 0;  p < dimPersons;  p++)
-            if (solution.getRole(p, t) > 0 && n-- <= 0)
-            {
-              p2 = p;
-              t2 = t;
-              break;
-            }
-      
-      solution.setRole(p1, t1, 0);
-      solution.setRole(p1, t2, unassignedRole);
-      solution.setRole(p2, t1, unassignedRole);
-      solution.setRole(p2, t2, 0);
-
-      // calculate target value
-      lastTarget = target;
-      target = solution.calculateTargetValue();
-
-      if (debug)
-      {
-        System.out.println("\np1=" + p1 + " t1=" + topics.getName(t1)
-                           + "  /  p2=" + p2 + " t2=" + topics.getName(t2));
-        System.out.println(this + "target=" + target + "   (" + bestTarget
-                           + ")  (" + bestTargetTotal + ")");
-      }
-
-      if (target < bestTargetTotal)
-      {
-        // check if solution is known already
-        boolean known = false;
-        
-        if (!known)
-        {
-          bestTargetTotal = target;
-          // store best result
-          for (int p = 0; p < dimPersons; p++)
-            for (int t = 0; t < dimTopics; t++)
-              bestAssignment[p][t] = solution.getRole(p, t);
-
-          if (debug)
-            System.out.println("BEST ASSIGNMENT");
-        }
-      }
-      
-      if (target < bestTarget)
+    try
+    {
+      SwingUtilities.invokeAndWait(new Runnable()
       {
-        if (rand.nextInt(100) >= 100)
+        public void run()
         {
-          // take back
-          solution.setRole(p1, t1, unassignedRole);
-          solution.setRole(p1, t2, 0);
-          solution.setRole(p2, t1, 0);
-          solution.setRole(p2, t2, unassignedRole);
-          target = lastTarget;
-          
-          //if (debug)
-            System.out.println("better, but staying.");
+          publish();
         }
-        else
-        {
-          // accept
-          bestTarget = target;
-          
-          if (debug)
-            System.out.println("better, moving.");
-        }
-      }
-      else
-      {
-        if (rand.nextInt(100) >= 0)
-        {
-          // take back
-          solution.setRole(p1, t1, unassignedRole);
-          solution.setRole(p1, t2, 0);
-          solution.setRole(p2, t1, 0);
-          solution.setRole(p2, t2, unassignedRole);
-          target = lastTarget;
-          if (debug)
-            System.out.println("worse, staying");
-        }
-        else
-        {
-          // accept
-          bestTarget = target;
-          //if (debug)
-            System.out.println("worse, but moving.");
-        }
-      }
+      });
     }
-
-    for (int p = 0; p < dimPersons; p++)
-      for (int t = 0; t < dimTopics; t++)
-        solution.setRole(p, t, bestAssignment[p][t]);
-
-    if (debug)
+    catch (InterruptedException e)
     {
-      target = solution.calculateTargetValue();
-      System.out.println(this + "target=" + target + "  bestTargetTotal="
-                         + bestTargetTotal);
+      Thread.currentThread().interrupt();
+    }
+    catch (InvocationTargetException e)
+    {
+      System.out.println("Cannot publish the solutions: " + e.getCause());
     }
   }
-
+  
+  /**
+   * Start a solution calculation as a separate task.
+   * This is neccessary in order not to block the GUI thread.
+   * 
+   * @param dimTryTopicClustering  the number of topic clusterings to try.
+   * @param dimTryPersonAssignment the number of topic/person assignments to try.
+   * @param tries                  the maximum number of person assignment attempts.
+   * @param keepBest               the number of best solutions to keep in the list.
+   */
+  public void startSolverTask(int dimTryTopicClustering, 
+                             int dimTryPersonAssignment,
+                             int tries,
+                             int keepBest)
+  {
+    startSolverTask(dimTryTopicClustering, dimTryPersonAssignment, tries, keepBest, 0);
+  }
+  
+  /**
+   * Start a solution calculation with a time budget as a separate task.
+   * The calculation stops when the time budget is used up; the number of
+   * topic clusterings and person assignments is only a plan for dividing
+   * the budget (see solveWithBudget()). The first attempt is always
+   * completed, so there is a solution even if the budget is too small.
+   * 
+   * @param dimTryTopicClustering  the number of topic clusterings planned.
+   * @param dimTryPersonAssignment the number of person assignments per clustering.
+   * @param tries                  the maximum number of person assignment attempts
+   *                               for the first attempts, which measure the speed.
+   * @param keepBest               the number of best solutions to keep in the list.
+   * @param timeBudget             the time budget in seconds, 0 for none.
+   */
+  public void startSolverTask(int dimTryTopicClustering, 
+                              int dimTryPersonAssignment,
+                              int tries,
+                              int keepBest,
+                              int timeBudget)
+  {
+    checkIdle();
+    this.dimTryTopicClustering   = dimTryTopicClustering;
+    this.dimTryPersonAssignment  = dimTryPersonAssignment;
+    this.tries                   = tries;
+    this.keepBest                = keepBest;
+    this.timeBudget              = timeBudget;
+    createProblem();
+    startTask();
+  }
+  
   /**
-   * Assign the roles to produce a solution.
-   * After calling this method, isValidSoution() should be used
-   * to check whether a valid solution has been reached.
+   * Perform a solution calculation in the current thread and return
+   * when it is finished. This is used for calculations without GUI,
+   * e.g. by the BatchSolver; the parameters are those of startSolverTask().
+   * 
+   * @param dimTryTopicClustering  the number of topic clusterings to try.
+   * @param dimTryPersonAssignment the number of person assignments per clustering.
+   * @param tries                  the maximum number of person assignment attempts.
+   * @param keepBest               the number of best solutions to keep in the list.
+   * @param timeBudget             the time budget in seconds, 0 for none.
+   */
+  public void solve(int dimTryTopicClustering, 
+                    int dimTryPersonAssignment,
+                    int tries,
+                    int keepBest,
+                    int timeBudget)
+  {
+    checkIdle();
+    this.dimTryTopicClustering   = dimTryTopicClustering;
+    this.dimTryPersonAssignment  = dimTryPersonAssignment;
+    this.tries                   = tries;
+    this.keepBest                = keepBest;
+    this.timeBudget              = timeBudget;
+    createProblem();
+    runTask();
+  }
+  
+  /**
+   * Make sure that no calculation is running before its parameters
+   * are changed.
+   * 
+   * @throws IllegalStateException if a calculation is running.
    */
-  void assignRoles()
+  private void checkIdle()
   {
-    int dimPersons     = persons.getNumber();
-    int dimTopics      = topics.getNumber();
-    int dimSessions    = getSessionNumber();
-    int dimRoles       = getRoles().getNumber();
-    int nAssignments   = dimPersons * dimTopics / dimSessions;
-    int unassignedRole = dimRoles + 1; // Marker for an unassigned role
+    if (isRunning())
+      throw new IllegalStateException("a calculation is already running");
+  }
+  
+  /**
+   * Check whether the role limits can be met in every session.
+   * 
+   * @return a description of the violated constraints, 
+   *         or null if there are none.
+   */
+  public String checkConstraints()
+  {
+    int minSum = 0;
+    int maxSum = 0;
+    int perSession = persons.getNumber() / dimSessions;
+    String msg = null;
 
-    for (int topic = 0;  topic < dimTopics;  ++topic)
-      Arrays.fill(topicRole[topic], 0);
+    for (int r = 0; r < roles.getNumber(); ++r)
+    {
+      minSum += roles.getMinimumPerSession(r);
+      maxSum += roles.getMaximumPerSession(r);
+    }
 
-    for (int person = 0;  person < dimPersons;  ++person)
-      Arrays.fill(personRole[person], 0);
+    if (maxSum < perSession)
+      msg = "  - The sum of the role maxima (" + maxSum
+            + ") is less than\n    the number of participants per session ("
+            + perSession + ")\n";
 
-    for (int as = 0;  as < nAssignments + 1;  ++as)
-      Arrays.fill(seqPersons[as], 0);
+    if (minSum > perSession)
+      msg = (msg == null ? "" : msg)
+            + "  - The sum of the role minima (" + minSum
+            + ") exceeds\n    the number of participants per session (" + perSession
+            + ")\n";
 
-    int topicLimit  = dimPersons / dimSessions / dimRoles;
-    int personLimit = dimTopics / dimSessions / dimRoles;
+    return msg;
+  }
+  
+  /**
+   * Produce the XML document of an OpenSess file: the data, the
+   * solution parameters, the selected solution and the solutions.
+   * The parameters are passed in, as the MainWindow takes them from
+   * its SolutionPanel and the BatchSolver from its options.
+   * 
+   * @param stream            the PrintWriter to write to.
+   * @param level             the indentation level.
+   * @param topicClusters     the number of topic clusterings to try.
+   * @param personAssignments the number of person assignments per clustering.
+   * @param attempts          the number of annealing moves of each assignment.
+   * @param keepBest          the number of best solutions to keep.
+   * @param distinct          the kind of distinct solutions (see DISTINCT_NAMES).
+   * @param threads           the number of threads.
+   * @param timeBudget        the time budget in seconds, 0 for none.
+   * @param stopGap           the optimality gap to stop at, 0 for never.
+   * @param assignment        the person assignment method.
+   * @param schedule          the annealing schedule.
+   * @param startTemperature  the start temperature, 0 for calibrated.
+   * @param endTemperature    the end temperature, 0 for the default.
+   * @param reheatAfter       the moves without improvement before a reheat.
+   * @param selected          the index of the selected solution, -1 for none.
+   */
+  public void saveDocument(PrintWriter stream, int level, int topicClusters,
+                           int personAssignments, int attempts, int keepBest,
+                           int distinct, int threads, int timeBudget,
+                           double stopGap, int assignment, int schedule,
+                           double startTemperature, double endTemperature,
+                           int reheatAfter, int selected)
+  {
+    stream.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+    stream.println("<openconclave topics=\"" + topics.getNumber()
+                   + "\" persons=\"" + persons.getNumber()
+                   + "\" roles=\"" + roles.getNumber()
+                   + "\" sessions=\"" + getSessionNumber()
+                   + "\">");
+    
+    saveData(stream, level+1);
 
-    // for every role we repeat the same procedure:
-    // we try to allocate the role according to the preference of the person
-    // we perform backtracking to find a valid solution
-    boolean debug = false;
+    XMLStateSaving.Indenter.println(stream, level+1, "<solutionParameters topicClusters=\""
+                                    + topicClusters + "\" personAssignments=\""
+                                    + personAssignments + "\" attempts=\""
+                                    + attempts + "\" keepBest=\""
+                                    + keepBest + "\" distinct=\""
+                                    + DISTINCT_NAMES[distinct] + "\" threads=\""
+                                    + threads + "\" timeBudget=\""
+                                    + timeBudget + "\" stopGap=\""
+                                    + stopGap + "\" assignment=\""
+                                    + (assignment == MIN_COST_FLOW ? "flow" : "annealing")
+                                    + "\" schedule=\""
+                                    + Annealing.SCHEDULE_NAMES[schedule]
+                                    + "\" startTemperature=\""
+                                    + startTemperature + "\" endTemperature=\""
+                                    + endTemperature + "\" reheat=\""
+                                    + reheatAfter + "\"/>");
+    
+    XMLStateSaving.Indenter.println(stream, level+1, "<selectedSolution index=\""
+                                    + selected + "\"/>");
+    
+    saveSolutions(stream, level+1);
+    stream.println("</openconclave>");
+  }
+  
+  /**
+   * Produce the XML representation of the topics, persons, roles,
+   * locations and times.
+   * 
+   * @param stream the PrintWriter to write to.
+   * @param level  the indentation level.
+   */
+  public void saveData(PrintWriter stream, int level)
+  {
+    topics.save(stream, level);
+    persons.save(stream, level);
+    roles.save(stream, level);
+    locations.save(stream, level);
+    times.save(stream, level);
+  }
+  
+  /**
+   * Produce the XML representation of the list of solutions.
+   * 
+   * @param stream the PrintWriter to write to.
+   * @param level  the indentation level.
+   */
+  public void saveSolutions(PrintWriter stream, int level)
+  {
+    XMLStateSaving.Indenter.println(stream, level, "<solutions>");
+    
+    Vector list = solutions;
+    
+    for (int s = 0;  s < list.size();  ++s)
+      ((Solution)list.elementAt(s)).save(stream, level+1);
+    
+    XMLStateSaving.Indenter.println(stream, level, "</solutions>");
+  }
+  
+  /**
+   * Return the time budget of the current calculation.
+   * 
+   * @return the time budget in seconds, 0 if there is none.
+   */
+  public int getTimeBudget()
+  {
+    return timeBudget;
+  }
+  
+  /**
+   * Return the current progress. With a time budget, this is the
+   * number of seconds elapsed.
+   * 
+   * @return the current progress.
+   */
+  public int getCurrent()
+  {
+    if (timeBudget > 0)
+      return (int)Math.min(timeBudget, (System.currentTimeMillis() - startTime) / 1000);
+    
+    return super.getCurrent();
+  }
+  
 
-    if (debug)
-      System.out.println(this);
+  /**
+   * Perform the calculation of solutions.
+   * This should not be called in a GUI thread, use startSolverTask()
+   * instead.
+   */
+  protected void doTask()
+  {
+    // the time budget includes the preparations
+    startTime = System.currentTimeMillis();
+    telemetry.start();
+    
+    try
+    {
+      calculate();
+    }
+    finally
+    {
+      telemetry.stop();
+      publishNow();
+    }
+  }
+  
+  /**
+   * Calculate the solutions (see doTask()).
+   */
+  protected void calculate()
+  {
+    // the preference index is updated when the Problem is created
+    Problem problem = getProblem();
+    long    start   = System.nanoTime();
+    
+/*    
+    System.out.println("\n" + "Die Personen und ihre Prferenzen:");
+    System.out.print("\n" + persons);
 
-    // we define the sequence in which we want to assign roles to the persons
-    // we change the sequence of persons for each step to prevent a bias
-		int noStep   = 0;
-		int maxSteps = 100000; // Integer.MAX_VALUE;
-		solved = true;
-		
-    for (int n = 0; n < nAssignments; n++)
-    {
-      int p = n % dimPersons;
-      int cycle = n / dimPersons;
-      seqPersons[n][0] = (cycle % 2 == 0) ? p : dimPersons - 1 - p;
+    System.out.println("\n" + "Die Personen und ihre Ranglisten je Thema:");
+    System.out.println("\n" + Persons.emptyName() + "   "
+                       + topics.toHeaderString("  "));
+    System.out.print(persons.ranks());
+    System.out.println(Persons.emptyName() + "   "
+                       + topics.toHeaderString("  "));
+*/
+    
+    // calculate attractiveness of topics
+    topics.calcPrefs(problem);
+    telemetry.addPhase(SolverTelemetry.CALC_PREFS, System.nanoTime() - start);
+    //System.out.println("\nDie Themen, geordnet nach summierter Prferenz");
+    //System.out.println("\n" + topics);
+
+    // calculate distance matrix for each topic pair
+    start = System.nanoTime();
+    topics.calcDist(problem);
+    telemetry.addPhase(SolverTelemetry.CALC_DIST, System.nanoTime() - start);
+    //System.out.print("Die Abstandsmatrix zwischen den Themen:\n"
+    //                 + topics.distToString());
+
+    // create topic groups using a heuristic approach to minimize
+    // preference conflicts for all persons;
+    // make several tries
+    ranking.clear();
+    publishNow();
+    attemptsDone = 0;
+    gapReached   = false;
+    
+    synchronized (knownAssignments)
+    {
+      knownAssignments.clear();
     }
+    
+    synchronized (this)
+    {
+      evaluator = new Evaluator(problem);
+    }
+    
+    // the bound is only needed to stop at the optimality gap
+    telemetry.setLowerBound(stopGap > 0 ? calculateLowerBound() : lowerBound);
 
-    for (int n = 0; n < nAssignments; n++)
-    {
-			if (++noStep > maxSteps)
-			{
-			  solved = false;
-			  break;
-			}
-			
-      int r = (n / (nAssignments / dimRoles)) + 1;
-      int p = seqPersons[n][0];
-      boolean ok = false;
-      int t = 0, prio;
+    if (timeBudget > 0)
+    {
+      solveWithBudget();
+      return;
+    }
+    
+    if (threads > 1 || executor != null)
+    {
+      solveParallel();
+      return;
+    }
+    
+    AssignmentWorker worker = new AssignmentWorker(this);
+    Vector           done   = new Vector();
+    
+    for (int tryT = 0; tryT < dimTryTopicClustering; tryT++)
+    {
+      int topicGroup[] = createTopicGroup(done, tryT);
       
-      for (prio = seqPersons[n][1]; prio < dimTopics; prio++)
+      // for each clustering we try several assigments
+      // of persons to topics (and roles)
+      for (int tryP = 0; tryP < dimTryPersonAssignment; tryP++)
       {
-        t = persons.getPreferenceIndex(p, prio);
+        if (stopRequested())
+          return;
         
-        if (solution.getRole(p, t) == unassignedRole)
+        attempt(worker, topicGroup, tryT, tryP, tries);
+        attemptDone();
+      }
+    }
+  }
+  
+  /**
+   * Calculate all attempts in parallel. Each topic clustering is a task
+   * of its own, which submits the person assignment attempts for its 
+   * clustering as soon as it is finished. Each thread uses its own
+   * AssignmentWorker; new solutions are merged by addSolution().
+   */
+  protected void solveParallel()
+  {
+    ExecutorService pool = executor;
+    
+    if (pool == null)
+      pool = Executors.newFixedThreadPool(threads);
+
+    final ExecutorService theExecutor = pool;
+    final Vector          done        = new Vector();
+    final CountDownLatch  finished    = new CountDownLatch(dimTryTopicClustering
+                                                           * dimTryPersonAssignment);
+    final ThreadLocal     workers     = new ThreadLocal()
+    {
+      protected Object initialValue()
+      {
+        return new AssignmentWorker(Solver.this);
+      }
+    };
+    
+    for (int tryT = 0;  tryT < dimTryTopicClustering;  tryT++)
+    {
+      final int theTryT = tryT;
+      
+      theExecutor.execute(new Runnable()
+      {
+        public void run()
         {
-          if (debug)
-            System.out.print("n=" + n + " r=" + r + " p=" + p + " t=" + t);
+          int submitted = 0;
           
-          // try to assign the role
-          if (topicRole[t][r] < topicLimit && personRole[p][r] < personLimit)
+          try
           {
-            solution.setRole(p, t, r);
-            topicRole[t][r] += 1;
-            personRole[p][r] += 1;
+            if (stopRequested())
+              return;
             
-            if (debug)
-              System.out.println("  assigned.");
+            // only the clusterings finished so far can be excluded here
+            final int topicGroup[] = createTopicGroup(done, theTryT);
+          
+            for (; submitted < dimTryPersonAssignment;  submitted++)
+            {
+              final int theTryP = submitted;
             
-            ok = true;
-            break;
+              theExecutor.execute(new Runnable()
+              {
+                public void run()
+                {
+                  try
+                  {
+                    if (!stopRequested())
+                    {
+                      attempt((AssignmentWorker)workers.get(), topicGroup,
+                              theTryT, theTryP, tries);
+                      attemptDone();
+                    }
+                  }
+                  finally
+                  {
+                    finished.countDown();
+                  }
+                }
+              });
+            }
           }
-          else
+          finally
           {
-            ok = false;
-            
-            if (debug)
-              System.out.println("  not possible.");
+            // account for the attempts that will never run
+            for (; submitted < dimTryPersonAssignment;  submitted++)
+              finished.countDown();
           }
         }
-      }
-      
-      if (ok)
-      { // going forward, reset minPrio for next n
-        seqPersons[n][1] = prio + 1;
-        seqPersons[n + 1][1] = 0;
-      }
-      else
-      { // back tracking
-        n -= 1;
-
-        p = seqPersons[n][0];
-        t = persons.getPreferenceIndex(p, seqPersons[n][1] - 1);
-        solution.setRole(p, t, unassignedRole);
-        topicRole[t][r] -= 1;
-        personRole[p][r] -= 1;
-        n -= 1;
-      }
+      });
     }
     
-		// System.out.println (noStep + " steps performed.");
+    try
+    {
+      finished.await();
+    }
+    catch (InterruptedException e)
+    {
+      stop();
+    }
+    finally
+    {
+      if (executor == null)
+        pool.shutdown();
+    }
   }
-
+  
   /**
-   * An alternative role assignment algorithm
-   *
+   * Calculate solutions until the time budget is used up.
+   * 
+   * The budget is spent adaptively: each attempt gets an equal share of
+   * the remaining time for the attempts still planned (times the number
+   * of threads), and the number of annealing tries is set from the moves
+   * per millisecond measured in the attempts so far (the first attempts are
+   * short probes to measure this speed). Every annealing search
+   * is stopped at the deadline. A clustering whose first attempt is worse
+   * than the first attempt of an earlier clustering gets no further attempts,
+   * so the time is spent on the promising clusterings. When all planned
+   * attempts are done before the deadline (e.g. with the min-cost flow
+   * assignment), further clusterings are tried until the time is up.
    */
-  public void assignRolesAlternative()
+  protected void solveWithBudget()
   {
-    int dimRoles       = getRoles().getNumber();
-    int unassignedRole = dimRoles + 1; // Marker for an unassigned role
-    Random rand = new Random();
-    debug = false;
-    
-    if (debug)
-      System.out.println("Using role shuffling on initial matrix:\n" + solution.debugString());
-
-    // Determine the number of required roles per session (with minimum occurence)
-    int requiredRoles = 0;
+    deadline        = startTime + 1000L * timeBudget;
+    budgetDone      = new Vector();
+    budgetGroup     = null;
+    budgetCreating  = false;
+    budgetTryT      = -1;
+    budgetTryP      = 0;
+    budgetStarted   = 0;
+    bestFirstTarget = Integer.MAX_VALUE;
+    movesMade       = 0;
+    moveMillis      = 0;
     
-    for (int r=0;  r < roles.getNumber();  ++r)
-      requiredRoles += roles.getMinimumPerSession(r);
-      
-    if (debug)
-    	System.out.println(requiredRoles + " roles are required per session.");
-
-    // Build a pool of possible roles to choose from for non-required roles.
-    Vector rolePool = new Vector();
+    final Runnable loop = new Runnable()
+    {
+      public void run()
+      {
+        AssignmentWorker worker = new AssignmentWorker(Solver.this);
+        BudgetAttempt    next;
+        
+        worker.setDeadline(deadline);
+        
+        while (!stopRequested() && (next = nextBudgetAttempt()) != null)
+        {
+          long start  = System.currentTimeMillis();
+          int  target = attempt(worker, next.topicGroup, next.tryT, 
+                                next.tryP, next.tries);
+          
+          budgetAttemptDone(next, worker.getMoves(), 
+                            System.currentTimeMillis() - start, target);
+        }
+      }
+    };
     
-    for (int r=0;  r < roles.getNumber();  ++r)
+    if (threads <= 1 && executor == null)
     {
-      int optional = roles.getMaximumPerSession(r) - roles.getMinimumPerSession(r);
-      
-      for (int i=0;  i < optional;  ++i)
-      	rolePool.add(new Integer(r));
+      loop.run();
+      return;
     }
-
-    if (debug)
-    	System.out.println("For each session, there are " + rolePool.size() + " roles in the pool of optional roles.");
     
-    // Prepare the vector which tells us how many copies of each
-    // role should be assigned in a session
-    int rolesToAssign[] = new int[dimRoles];
+    ExecutorService pool = executor;
+    
+    if (pool == null)
+      pool = Executors.newFixedThreadPool(threads);
+    
+    final CountDownLatch finished = new CountDownLatch(threads);
     
-    // We iterate over all sessions to assign the roles
-    for (int t=0;  t < topics.getNumber();  ++t)
+    for (int i = 0;  i < threads;  ++i)
+      pool.execute(new Runnable()
+      {
+        public void run()
+        {
+          try
+          {
+            loop.run();
+          }
+          finally
+          {
+            finished.countDown();
+          }
+        }
+      });
+    
+    try
+    {
+      finished.await();
+    }
+    catch (InterruptedException e)
+    {
+      stop();
+    }
+    finally
+    {
+      if (executor == null)
+        pool.shutdown();
+    }
+  }
+  
+  /**
+   * Return the next attempt of a calculation with a time budget,
+   * or null if the budget is used up. A new topic clustering is created
+   * when the attempts for the current one are done; this is done
+   * without locking the Solver, while the other threads wait for it.
+   * 
+   * @return the next attempt or null.
+   */
+  private BudgetAttempt nextBudgetAttempt()
+  {
+    for (;;)
     {
-      int minimumRoles = 0;
+      int tryT;
       
-      // Initialise the role array with the minimum numbers.
-      for (int r=0;  r < dimRoles;  ++r)
+      synchronized (this)
       {
-        rolesToAssign[r] = roles.getMinimumPerSession(r);
-        minimumRoles += rolesToAssign[r];
+        // not stopRequested(), a paused task must not wait in here
+        if (taskWasCanceled() || gapReached 
+            || (budgetStarted > 0 && System.currentTimeMillis() >= deadline))
+          return null;
+        
+        if (budgetGroup != null && !budgetAbandon 
+            && budgetTryP < dimTryPersonAssignment)
+          return reserveBudgetAttempt();
+        
+        if (budgetCreating)
+        {
+          try
+          {
+            wait(100);
+          }
+          catch (InterruptedException e)
+          {
+            return null;
+          }
+          
+          continue;
+        }
+        
+        budgetCreating = true;
+        tryT           = budgetTryT + 1;
       }
       
-      // Count the unassigned persons in this session
-      // (this is done to enable this algorithm to cope with a varying 
-      // number of participants per session).
-      int unassigned = 0;
-      
-      for (int p=0;  p < persons.getNumber();  ++p)
-        if (solution.getRole(p, t) == unassignedRole)
-          ++unassigned;
-    
-      int optionalRoles = unassigned - minimumRoles;
-      
-      if (debug)
-      	System.out.println("For session " + t + " there are " + optionalRoles + 
-      	                   " optional roles to pick.");
+      int topicGroup[] = null;
       
-      // Pick the optional roles randomly and increase rolesToAssign accordingly
-      // First, make a copy of the complete rolePool
-      Vector pool = (Vector) rolePool.clone();
-      
-      if (optionalRoles > pool.size())
-        System.out.println("CANNOT HAPPEN: pool size wrong.");
-
-      for (int n=0;  n < optionalRoles;  ++n)  
+      try
       {
-        int index = rand.nextInt(pool.size());
-        int r     = ((Integer)pool.elementAt(index)).intValue();
-        pool.remove(index);
-        ++rolesToAssign[r];
+        topicGroup = createTopicGroup(budgetDone, tryT);
+      }
+      finally
+      {
+        synchronized (this)
+        {
+          if (topicGroup != null)
+          {
+            budgetGroup   = topicGroup;
+            budgetTryT    = tryT;
+            budgetTryP    = 0;
+            budgetAbandon = false;
+          }
+          
+          budgetCreating = false;
+          notifyAll();
+        }
       }
-
-      // Now we know what roles must be assigned.
-      // Do it by picking the participants that are most interested.
-      for (int r=0;  r < dimRoles;  ++r)
-        for (int n=0;  n < rolesToAssign[r];  ++n)
-          solution.setRole(chooseMostInterestedPerson(t, rand), t, r+1);
     }
+  }
+  
+  /**
+   * Reserve the next attempt for the current clustering of a
+   * calculation with a time budget. The Solver must be locked.
+   * 
+   * @return the attempt.
+   */
+  private BudgetAttempt reserveBudgetAttempt()
+  {
+    long          now  = System.currentTimeMillis();
+    BudgetAttempt next = new BudgetAttempt();
+    
+    next.topicGroup = budgetGroup;
+    next.tryT       = budgetTryT;
+    next.tryP       = budgetTryP++;
+    next.tries      = Math.min(tries, PROBE_TRIES);
     
-    if (debug)
-    	System.out.println("\nAfter assigning the other roles:\n" + solution.debugString());
+    if (movesMade > 0)
+    {
+      // the attempts still planned share the remaining time
+      int  planned   = Math.max(dimTryTopicClustering * dimTryPersonAssignment
+                                - budgetStarted,
+                                dimTryPersonAssignment - next.tryP);
+      long remaining = Math.max(1, deadline - now);
+      long slice     = Math.min(remaining, remaining * threads / planned);
+      double rate    = (double)movesMade / Math.max(1, moveMillis);
+      
+      next.tries = (int)Math.max(1, Math.min(Integer.MAX_VALUE, rate * slice));
+    }
     
-    solved = true;
-    debug = false;
+    ++budgetStarted;
+    return next;
   }
   
   /**
-   * Of all the participants in the session for topic t that have
-   * not yet been assigned a role, return the one with the highest 
-   * interest.
+   * Account for a finished attempt of a calculation with a time budget.
    * 
-   * @param t the topic of the session.
-   * @return the most interested unassigned pearticipant.
+   * @param done     the attempt.
+   * @param moves    the number of annealing moves made.
+   * @param millis   the time used by the attempt.
+   * @param target   the target value of the solution found, 
+   *                 Integer.MAX_VALUE if it was not valid.
    */
-  protected int chooseMostInterestedPerson(int t, Random rand)
+  private synchronized void budgetAttemptDone(BudgetAttempt done, int moves,
+                                              long millis, int target)
   {
-    // Of all the unassigned persons in this session,
-    // pick the one with the highest interest.
-    int dimRoles       = getRoles().getNumber();
-    int unassignedRole = dimRoles + 1; // Marker for an unassigned role
-    int interest = 99999;
-    int dimCandidates = 0;
+    movesMade  += moves;
+    moveMillis += millis;
+    setCurrent(++attemptsDone);
     
-    for (int p=0;  p < persons.getNumber();  ++p)
-      if (solution.getRole(p, t) == unassignedRole)
-      {
-        int pInterest = persons.getPreferenceIndex(p, t);
-        
-        if (pInterest < interest)
-        {
-          dimCandidates = 0;
-          candidates[dimCandidates++] = p;
-        	interest   = pInterest;
-        }
-        else if (pInterest == interest)
-          candidates[dimCandidates++] = p;
-      }
+    if (done.tryP == 0)
+    {
+      if (target > bestFirstTarget && done.tryT == budgetTryT)
+        budgetAbandon = true;
       
-    if (dimCandidates <= 0)
-      System.out.println("CANNOT HAPPEN: no person left to choose.");
-        
-    return candidates[rand.nextInt(dimCandidates)];
+      bestFirstTarget = Math.min(bestFirstTarget, target);
+    }
   }
-
+  
+  /**
+   * Create a topic clustering and add it to the list of clusterings
+   * that have been investigated. The list may be shared by several
+   * threads: the clusterings in it at the start are excluded, and the
+   * new one is added when it is finished.
+   * 
+   * @param done the clusterings which should not be reproduced.
+   * @param tryT the number of the topic clustering attempt.
+   * @return the topic clustering.
+   */
+  protected int[] createTopicGroup(Vector done, int tryT)
+  {
+    int dimTopics = getProblem().getTopicNumber();
+    
+    setMessage("Topic Clustering Attempt " + tryT);
+    
+    // the copy and add() are synchronized by the Vector
+    long start       = System.nanoTime();
+    int topicGroup[] = topics.createGroup(dimSessions, new Vector(done), dimTopics
+                                                             * dimTopics
+                                                             * 100,
+                                          tryT * 12345 + 678);
+    
+    telemetry.addPhase(SolverTelemetry.CREATE_GROUP, System.nanoTime() - start);
+/*
+     System.out.print("\nGruppierung der Themen (Versuch "
+                     + tryT
+                     + "):\n"
+                     + topics.groupsToString(topicGroup, dimTopics
+                                                         / dimSessions));
+*/
+    done.add(topicGroup);
+    return topicGroup;
+  }
+  
   /**
-   * Create a Solution object from the current solution.
+   * Perform a single solution attempt for a topic clustering and
+   * add the result to the list of solutions if it is valid.
    * 
-   * @param index this is the current number of the solution.
-   *              Will be used to give the solution an initial name
-   *              ("Solution &lt;index&gt;").
-   * @return the new Solution object.
+   * @param worker     the AssignmentWorker to use.
+   * @param topicGroup the topic clustering.
+   * @param tryT       the number of the topic clustering attempt.
+   * @param tryP       the number of the person assignment attempt.
+   * @param tries      the number of annealing tries.
+   * @return the target value of the solution, or Integer.MAX_VALUE if no 
+   *         valid solution was found.
    */
-  public Solution createSolution(int index)
+  protected int attempt(AssignmentWorker worker, int topicGroup[], 
+                        int tryT, int tryP, int tries)
   {
-    if (!solved)
-      return null;
+    // first the assignment is done without a specific role
+    long start = System.nanoTime();
+    
+    worker.assignPersonsToSessions(topicGroup, tries, tryP * 4711 + 8812);
+    telemetry.addPhase(SolverTelemetry.ASSIGN, System.nanoTime() - start);
+    
+    // an assignment that has been found before would only give
+    // the same solution again
+    synchronized (knownAssignments)
+    {
+      if (!knownAssignments.add(worker.getAssignmentHash()))
+        return Integer.MAX_VALUE;
+    }
+    
+    // thereafter the roles are assigned
+    start = System.nanoTime();
+    worker.assignRolesByMatching();
+    telemetry.addPhase(SolverTelemetry.ROLES, System.nanoTime() - start);
 
-    solution.evaluate();
+    if (!worker.isValidSolution())
+      return Integer.MAX_VALUE;
+    
+    int target = worker.getTargetValue();
+    
+    telemetry.addSolution(target);
     
-    StringBuffer name = new StringBuffer("Solution " + (index+1));
-    name.append(": ");
-    name.append(compactFormat.format(solution.getMeanSatisfaction()));
-    name.append(" - ");
-    name.append(compactFormat.format(solution.getMinimumSatisfaction()));
-    name.append(" - ");
-    name.append(compactFormat.format(solution.getStandardDeviation()));
-    solution.setName(name.toString());
+    if (stopGap > 0 && getGap(target) <= stopGap)
+      gapReached = true;
     
-    return solution;
+    // the mean satisfaction is known from the role assignment; a solution
+    // which cannot enter the list of the best solutions is neither
+    // evaluated nor named
+    if (!ranking.admits(worker.getMeanSatisfaction(), keepBest))
+    {
+      telemetry.addRejected();
+      return target;
+    }
+    
+    start = System.nanoTime();
+    
+    Solution solution = worker.createSolution(tryT*dimTryPersonAssignment + tryP);
+    
+    telemetry.addPhase(SolverTelemetry.EVALUATE, System.nanoTime() - start);
+    addSolution(solution);
+    return target;
+  }
+  
+  /**
+   * Return the figures of the current or last calculation.
+   * 
+   * @return the telemetry.
+   */
+  public SolverTelemetry getTelemetry()
+  {
+    return telemetry;
   }
   
-}
\ No newline at end of file
+  /**
+   * Return the Evaluator for the solutions. It is created again at the
+   * start of each calculation, or when it is first needed.
+   * 
+   * @return the Evaluator.
+   */
+  synchronized Evaluator getEvaluator()
+  {
+    if (evaluator == null)
+      evaluator = new Evaluator(getProblem());
+    
+    return evaluator;
+  }
+  
+  /**
+   * Take a new snapshot of the data to be solved (see Problem).
+   * This is done when a calculation is started; it must be done in
+   * the thread that edits the data, i.e. the GUI thread. The lower bound
+   * and the Evaluator are calculated again for the new data.
+   * 
+   * @return the new Problem.
+   */
+  synchronized Problem createProblem()
+  {
+    problem    = new Problem(this);
+    lowerBound = -1;
+    evaluator  = null;
+    return problem;
+  }
+  
+  /**
+   * Return the snapshot of the data that is solved by the current or
+   * last calculation. If there has been none, a snapshot is taken.
+   * 
+   * @return the Problem.
+   */
+  synchronized Problem getProblem()
+  {
+    if (problem == null)
+      createProblem();
+    
+    return problem;
+  }
+  
+  /**
+   * Return true if a person assignment (identified by its Zobrist hash,
+   * see AssignmentWorker) has been the result of an earlier attempt
+   * of the current calculation.
+   * 
+   * @param hash the hash of the assignment.
+   * @return true if the assignment is known.
+   */
+  boolean isKnownAssignment(long hash)
+  {
+    synchronized (knownAssignments)
+    {
+      return knownAssignments.contains(hash);
+    }
+  }
+  
+  /**
+   * Return true if no further attempts should be started,
+   * because the task was canceled or the optimality gap is reached.
+   * While the task is paused, this waits until it is resumed.
+   * 
+   * @return true if the calculation should stop.
+   */
+  private boolean stopRequested()
+  {
+    return checkPoint() || gapReached;
+  }
+  
+  /**
+   * Count a finished attempt and report the progress.
+   */
+  private synchronized void attemptDone()
+  {
+    setCurrent(++attemptsDone);
+  }
+  
+  /**
+   * An attempt of a calculation with a time budget.
+   */
+  private static class BudgetAttempt
+  {
+    int topicGroup[];
+    int tryT;
+    int tryP;
+    int tries;
+  }
+}
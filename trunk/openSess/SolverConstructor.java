@@ -1,6 +1,15 @@
 package openSess;
-import org.xml.sax.Attributes;
-import org.xml.sax.helpers.DefaultHandler;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Hashtable;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 /*
  * Copyright 2005 Andreas Wickner
@@ -25,190 +34,517 @@ import org.xml.sax.helpers.DefaultHandler;
  */
 
 /**
- * This is an implementation of the SAX DefaultHandler which reconstructs
- * the state of the MainWindow/Solver from an XML file.
+ * SolverConstructor reconstructs the state of the MainWindow/Solver (or
+ * of another SolverOwner) from an XML file. The file is read by a StAX
+ * stream reader; the elements are dispatched by a switch on a number
+ * looked up for their name, and the numbers in the attributes are
+ * parsed directly from the attribute values.
+ * 
+ * Besides the element per preference, group topic and role assignment
+ * the compact form written with Solver.setCompactFormat() is read, in
+ * which these values are packed into lists of numbers:
+ * - &lt;person name="..." prefs="3 1 2 ..."/&gt; holds the preferences.
+ * - &lt;topicGroups topics="..."/&gt; holds the topics of all groups,
+ *   group after group.
+ * - &lt;roleAssignments topics="..." roles="..."/&gt; holds for each
+ *   person and group the topic (-1 for none) and the role.
+ * - &lt;personSums sums="..."/&gt; holds the satisfaction values.
+ * The compact form is kept when the file is saved again.
  * 
  * @author andreas
  */
 public class SolverConstructor
-  extends DefaultHandler
 {
-  private MainWindow main;
-  private Solver     solver;
-  private int        topic      = 0;
-  private int        person     = 0;
-  private int        role       = 0;
-  private int        location   = 0;
-  private int        time       = 0;
-  private int        solution   = 0;
-  private int        group      = 0;
-  private int        groupIndex = 0;
-  private Solution   currentSolution;
+  private static final int OPENCONCLAVE        = 1;
+  private static final int TOPICS              = 2;
+  private static final int TOPIC               = 3;
+  private static final int PERSONS             = 4;
+  private static final int PERSON              = 5;
+  private static final int PREFERRED_TOPIC     = 6;
+  private static final int ROLES               = 7;
+  private static final int ROLE                = 8;
+  private static final int LOCATIONS           = 9;
+  private static final int LOCATION            = 10;
+  private static final int TIMES               = 11;
+  private static final int TIME                = 12;
+  private static final int SOLUTION_PARAMETERS = 13;
+  private static final int SOLUTIONS           = 14;
+  private static final int SOLUTION            = 15;
+  private static final int TOPIC_GROUPS        = 16;
+  private static final int TOPIC_GROUP         = 17;
+  private static final int GROUP_TOPIC         = 18;
+  private static final int ROLE_ASSIGNMENTS    = 19;
+  private static final int ROLE_ASSIGNMENT     = 20;
+
+  /** the numbers of the element names, other elements are skipped */
+  private static final Hashtable elements = new Hashtable();
+
+  static
+  {
+    String names[] = { "openconclave", "topics", "topic", "persons", "person",
+                       "preferredTopic", "roles", "role", "locations", "location",
+                       "times", "time", "solutionParameters", "solutions",
+                       "solution", "topicGroups", "topicGroup", "groupTopic",
+                       "roleAssignments", "roleAssignment" };
+
+    for (int i = 0;  i < names.length;  ++i)
+      elements.put(names[i], Integer.valueOf(i + 1));
+  }
+
+  private static XMLInputFactory factory;
+
+  private SolverOwner     main;
+  private Solver          solver;
+  private XMLStreamReader reader;
+  private int             topic      = 0;
+  private int             person     = 0;
+  private int             role       = 0;
+  private int             location   = 0;
+  private int             time       = 0;
+  private int             solution   = 0;
+  private int             group      = 0;
+  private int             groupIndex = 0;
+  private Solution        currentSolution;
+  private String          list;      // the list of numbers being parsed
+  private int             listPos;   // the position in the list
   
   /**
-   * Constructs the contents of the given MainWindow.
+   * Constructs the contents of the given MainWindow or other SolverOwner.
    * 
-   * @param main the MainWindow.
+   * @param main the SolverOwner.
    */
-  public SolverConstructor(MainWindow main)
+  public SolverConstructor(SolverOwner main)
   {
     this.main = main;
   }
   
   /**
-   * Gets called by the SAX implementation when the start of an XML tag
-   * is recognized. 
+   * Read an XML document and reconstruct the state of the SolverOwner.
+   * 
+   * @param stream the stream to read the document from.
+   * @throws XMLStreamException if the document is not well-formed or
+   *                            cannot be read.
+   */
+  public void read(InputStream stream)
+    throws XMLStreamException
+  {
+    synchronized (SolverConstructor.class)
+    {
+      if (factory == null)
+      {
+        factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+      }
+      
+      reader = factory.createXMLStreamReader(stream);
+    }
+    
+    try
+    {
+      while (reader.hasNext())
+      {
+        int event = reader.next();
+        
+        if (event == XMLStreamConstants.START_ELEMENT)
+          startElement();
+        else if (event == XMLStreamConstants.END_ELEMENT)
+          endElement();
+      }
+    }
+    finally
+    {
+      reader.close();
+      reader = null;
+    }
+  }
+  
+  /**
+   * Read an XML file and reconstruct the state of the SolverOwner.
+   * 
+   * @param file the file.
+   * @throws IOException        if the file cannot be opened.
+   * @throws XMLStreamException if the document is not well-formed or
+   *                            cannot be read.
+   */
+  public void read(File file)
+    throws IOException, XMLStreamException
+  {
+    InputStream stream = new BufferedInputStream(new FileInputStream(file), 65536);
+    
+    try
+    {
+      read(stream);
+    }
+    finally
+    {
+      stream.close();
+    }
+  }
+  
+  /**
+   * Return the number of the current element.
+   * 
+   * @return the number, 0 if the element is unknown.
+   */
+  private int element()
+  {
+    Integer number = (Integer)elements.get(reader.getLocalName());
+    
+    return number == null ? 0 : number.intValue();
+  }
+  
+  /**
+   * Handle the start of an element.
+   * 
+   * @throws XMLStreamException if the dimensions of the problem are invalid.
    */
-  public void startElement(String uri, String localName, String qName, 
-                           Attributes attributes) 
+  private void startElement() 
+    throws XMLStreamException
   {
-    if (qName.equals("openconclave"))
+    switch (element())
+    {
+    case OPENCONCLAVE:
     {
-      int topicNumber   = getInt(attributes, "topics", 12);
-      int personNumber  = getInt(attributes, "persons", 12);
-      int roleNumber    = getInt(attributes, "roles", 3);
-      int sessionNumber = getInt(attributes, "sessions", 2);
+      int topicNumber   = getInt("topics", 12);
+      int personNumber  = getInt("persons", 12);
+      int roleNumber    = getInt("roles", 3);
+      int sessionNumber = getInt("sessions", 2);
+      
+      // the same check as in the GlobalNewWindow
+      if (topicNumber < 1 || personNumber < 1 || roleNumber < 1 || sessionNumber < 1
+          || topicNumber % sessionNumber != 0 || personNumber % sessionNumber != 0)
+        throw new XMLStreamException("The numbers of topics and persons must be "
+                                     + "divisible by the number of sessions",
+                                     reader.getLocation());
       
       main.reconfigure(topicNumber, personNumber, roleNumber, sessionNumber);
       solver = main.getSolver();
+      break;
     }
-    else if (qName.equals("topics"))
+    case TOPICS:
       topic = -1;
-    else if (qName.equals("topic"))
-      solver.getTopics().setName(++topic, getString(attributes, "name", topic));
-    else if (qName.equals("persons"))
+      break;
+    case TOPIC:
+      solver.getTopics().setName(++topic, getString("name", topic));
+      break;
+    case PERSONS:
       person = -1;
-    else if (qName.equals("person"))
+      break;
+    case PERSON:
     {
-      solver.getPersons().setName(++person, getString(attributes, "name", person));
+      Persons persons = solver.getPersons();
+      
+      persons.setName(++person, getString("name", person));
       topic = -1;
+      
+      if (startList("prefs"))
+      {
+        solver.setCompactFormat(true);
+        
+        for (int t = 0;  t < solver.getTopics().getNumber();  ++t)
+          persons.setPreference(person, ++topic, nextInt());
+      }
+      break;
     }
-    else if (qName.equals("roles"))
+    case PREFERRED_TOPIC:
+      solver.getPersons().setPreference(person, ++topic, getInt("index", 0));
+      break;
+    case ROLES:
       role = -1;
-    else if (qName.equals("role"))
+      break;
+    case ROLE:
     {
       Roles roles = solver.getRoles();
-      roles.setName(++role, getString(attributes, "name", role));
+      roles.setName(++role, getString("name", role));
       int minmax = solver.getPersons().getNumber()
-      				/	solver.getSessionNumber()
-      				/ solver.getRoles().getNumber();
-      roles.setMinimumPerSession(role, getInt(attributes, "min", minmax));
-      roles.setMaximumPerSession(role, getInt(attributes, "max", minmax));
+                   / solver.getSessionNumber()
+                   / solver.getRoles().getNumber();
+      roles.setMinimumPerSession(role, getInt("min", minmax));
+      roles.setMaximumPerSession(role, getInt("max", minmax));
+      break;
     }
-    else if (qName.equals("locations"))
+    case LOCATIONS:
       location = -1;
-    else if (qName.equals("location"))
-      solver.getLocations().setName(++location, getString(attributes, "name", location));
-    else if (qName.equals("times"))
+      break;
+    case LOCATION:
+      solver.getLocations().setName(++location, getString("name", location));
+      break;
+    case TIMES:
       time = -1;
-    else if (qName.equals("time"))
-      solver.getTimes().setName(++time, getString(attributes, "name", time));
-    else if (qName.equals("preferredTopic"))
-      solver.getPersons().setPreference(person, ++topic, getInt(attributes, "index", 0));
-    else if (qName.equals("solutionParameters"))
-    {
-      int keepBest = getInt(attributes, "keepBest", 10);
-      solver.setKeepBest(keepBest);
-      main.setSolutionParameters(getInt(attributes, "topicClusters",     5),
-                                 getInt(attributes, "personAssignments", 5),
-                                 getInt(attributes, "attempts",          100000),
-                                 keepBest);
-    }
-    else if (qName.equals("solutions"))
-    {
+      break;
+    case TIME:
+      solver.getTimes().setName(++time, getString("name", time));
+      break;
+    case SOLUTION_PARAMETERS:
+      solutionParameters();
+      break;
+    case SOLUTIONS:
       solution = 0;
-      solver.getPersons().createPreferenceIndex();
-    }
-    else if (qName.equals("solution"))
-    {
+      // the solutions are evaluated with the data read so far
+      solver.createProblem();
+      break;
+    case SOLUTION:
       currentSolution = new Solution(solver);
-      currentSolution.setName(getString(attributes, "name", solution));
-      main.getSolver().addSolution(currentSolution);
-    }
-/*
-    else if (qName.equals("statistics"))
-      currentSolution.setStatistics(getDouble(attributes, "meandev", 0.0),
-                                    getDouble(attributes, "maxdev",  0.0),
-                                    getDouble(attributes, "stddev",  0.0),
-                                    getInt(attributes, "target",     0));
-*/                                    
-    else if (qName.equals("topicGroups"))
+      currentSolution.setName(getString("name", solution));
+      break;
+    case TOPIC_GROUPS:
       group = -1;
-    else if (qName.equals("topicGroup"))
-    {
+      
+      if (startList("topics"))
+      {
+        for (int g = 0;  g < currentSolution.getGroupNumber();  ++g)
+          for (int i = 0;  i < currentSolution.getGroupSize();  ++i)
+            currentSolution.setGroupElement(g, i, nextInt());
+      }
+      break;
+    case TOPIC_GROUP:
       ++group;
       groupIndex = -1;
-    }
-    else if (qName.equals("groupTopic"))
-      currentSolution.setGroupElement(group, ++groupIndex, 
-                                      getInt(attributes, "index", 0));
-    else if (qName.equals("roleAssignments"))
+      break;
+    case GROUP_TOPIC:
+      currentSolution.setGroupElement(group, ++groupIndex, getInt("index", 0));
+      break;
+    case ROLE_ASSIGNMENTS:
       currentSolution.clearRoleAssignments();
-    else if (qName.equals("roleAssignment"))
-      currentSolution.setRole(getInt(attributes, "person", 0),
-                              getInt(attributes, "topic", 0),
-                              getInt(attributes, "role", 0));   
-    else if (qName.equals("personSums"))
-      person = -1;
-    else if (qName.equals("personSum"))
-      currentSolution.setPersonSum(++person, getDouble(attributes, "sum", 0));
+      roleAssignments();
+      break;
+    case ROLE_ASSIGNMENT:
+      setRole(getInt("person", 0), getInt("topic", 0), getInt("role", 0));
+      break;
+    }
+    // the statistics and person sums are not read, evaluate() calculates them
+  }
+  
+  /**
+   * Handle the start of the solutionParameters element.
+   */
+  private void solutionParameters()
+  {
+    int keepBest = getInt("keepBest", 10);
+    solver.setKeepBest(keepBest);
+    main.setSolutionParameters(getInt("topicClusters",     5),
+                               getInt("personAssignments", 5),
+                               getInt("attempts",          100000),
+                               keepBest,
+                               getInt("threads", 
+                                      Runtime.getRuntime().availableProcessors()),
+                               "flow".equals(getString("assignment", 0))
+                               ? Solver.MIN_COST_FLOW : Solver.ANNEALING);
+
+    String schedule = getString("schedule", 0);
+    int    s        = Annealing.HILL_CLIMBING;
+
+    for (int i = 0;  i < Annealing.SCHEDULE_NAMES.length;  ++i)
+      if (Annealing.SCHEDULE_NAMES[i].equals(schedule))
+        s = i;
+
+    String distinct = getString("distinct", 0);
+    int    d        = Solver.DISTINCT_SOLUTION;
+
+    for (int i = 0;  i < Solver.DISTINCT_NAMES.length;  ++i)
+      if (Solver.DISTINCT_NAMES[i].equals(distinct))
+        d = i;
+
+    main.setDistinctSolutions(d);
+    main.setTimeBudget(getInt("timeBudget", 0));
+    main.setStopGap(getDouble("stopGap", 0));
+    main.setAnnealingParameters(s,
+                                getDouble("startTemperature", 0),
+                                getDouble("endTemperature",   0),
+                                getInt("reheat",              0));
   }
+  
   /**
-   * Gets called by the SAX implementation when the end of an XML tag
-   * is recognized. 
+   * Handle the start of the roleAssignments element in the compact form.
+   * 
+   * @throws XMLStreamException if a role assignment is invalid.
    */
-  public void endElement(String uri, String localName, String qName) 
+  private void roleAssignments()
+    throws XMLStreamException
   {
-    if (qName.equals("solution"))
+    String roles = reader.getAttributeValue(null, "roles");
+    
+    if (roles == null || !startList("topics"))
+      return;
+    
+    int dimPersons = solver.getPersons().getNumber();
+    int dimGroups  = currentSolution.getGroupNumber();
+    int topics[]   = new int[dimPersons * dimGroups];
+    
+    for (int i = 0;  i < topics.length;  ++i)
+      topics[i] = nextInt();
+    
+    startList(roles, 0);
+    
+    for (int i = 0;  i < topics.length;  ++i)
+    {
+      int r = nextInt();
+      
+      if (topics[i] >= 0)
+        setRole(i / dimGroups, topics[i], r);
+    }
+  }
+  
+  /**
+   * Set a role of the current solution. The solution stores the role
+   * in a few bits beside the topic's slot in its group, so the values
+   * are checked first.
+   * 
+   * @param person the person.
+   * @param topic  the topic, which must be part of a topic group.
+   * @param role   the role, from 1 to the number of roles + 1 (no role).
+   * @throws XMLStreamException if a value is out of range.
+   */
+  private void setRole(int person, int topic, int role)
+    throws XMLStreamException
+  {
+    if (person < 0 || person >= solver.getPersons().getNumber()
+        || topic < 0 || topic >= solver.getTopics().getNumber()
+        || currentSolution.topicToGroup(topic) < 0
+        || role < 1 || role > solver.getRoles().getNumber() + 1)
+      throw new XMLStreamException("Invalid role assignment of person " + person
+                                   + " to topic " + topic + " with role " + role,
+                                   reader.getLocation());
+    
+    currentSolution.setRole(person, topic, role);
+  }
+  
+  /**
+   * Handle the end of an element.
+   */
+  private void endElement() 
+  {
+    switch (element())
+    {
+    case SOLUTION:
+      // the solution is ranked by its values, so it can only be
+      // added when it is complete
       currentSolution.evaluate();
+      solver.addSolution(currentSolution);
+      break;
+    case SOLUTIONS:
+      solver.publishNow();
+      break;
+    }
   }
   
   /**
-   * Looks for an attribute with a specified name and returns its value 
-   * as an int.
+   * Looks for an attribute of the current element with a specified name
+   * and returns its value as an int.
    * 
-   * @param attributes  the attribute list to search.
    * @param name        the name of the required attribute.
    * @param def         the default value to use when the attribute is not found.
    * @return            the value of the attribute or the default value if not found.
    */
-  int getInt(Attributes attributes, String name, int def)
+  int getInt(String name, int def)
   {
-    String value = attributes.getValue(name);
+    String value = reader.getAttributeValue(null, name);
+    
+    if (value == null)
+      return def;
     
-    return value == null ? def : (new Integer(value)).intValue();
+    startList(value, 0);
+    return nextInt();
   }
   
   /**
-   * Looks for an attribute with a specified name and returns its value 
-   * as a double.
+   * Looks for an attribute of the current element with a specified name
+   * and returns its value as a double.
    * 
-   * @param attributes  the attribute list to search.
    * @param name        the name of the required attribute.
    * @param def         the default value to use when the attribute is not found.
    * @return            the value of the attribute or the default value if not found.
    */
-  double getDouble(Attributes attributes, String name, double def)
+  double getDouble(String name, double def)
   {
-    String value = attributes.getValue(name);
+    String value = reader.getAttributeValue(null, name);
     
-    return value == null ? def : (new Double(value)).doubleValue();
+    return value == null ? def : Double.parseDouble(value);
   }
   
   /**
-   * Looks for an attribute with a specified name and returns its value 
-   * as a String. If the attribute is not found, return the String "Unknown n",
-   * where "n" is the value of the def-parameter.  
+   * Looks for an attribute of the current element with a specified name
+   * and returns its value as a String. If the attribute is not found,
+   * return the String "Unknown n", where "n" is the value of the
+   * def-parameter.  
    * 
-   * @param attributes  the attribute list to search.
    * @param name        the name of the required attribute.
    * @param def         the number to use in the default value when the attribute is not found.
    * @return            the value of the attribute or the default value if not found.
    */
-  String getString(Attributes attributes, String name, int defNumber)
+  String getString(String name, int defNumber)
   {
-    String value = attributes.getValue(name);
+    String value = reader.getAttributeValue(null, name);
     
     return value == null ? "Unknown " + defNumber : value;
   }
+  
+  /**
+   * Start parsing the list of numbers in an attribute of the current
+   * element with nextInt().
+   * 
+   * @param name the name of the attribute.
+   * @return false if the element has no such attribute.
+   */
+  private boolean startList(String name)
+  {
+    String value = reader.getAttributeValue(null, name);
+    
+    if (value == null)
+      return false;
+    
+    startList(value, 0);
+    return true;
+  }
+  
+  /**
+   * Start parsing a list of numbers with nextInt().
+   * 
+   * @param value the list.
+   * @param pos   the position to start at.
+   */
+  private void startList(String value, int pos)
+  {
+    list    = value;
+    listPos = pos;
+  }
+  
+  /**
+   * Parse the next number of the list given to startList(). The digits
+   * are read from the String directly, no objects are created.
+   * 
+   * @return the number.
+   * @throws NumberFormatException if the list has no further number.
+   */
+  private int nextInt()
+  {
+    int length = list.length();
+    
+    while (listPos < length && Character.isWhitespace(list.charAt(listPos)))
+      ++listPos;
+    
+    boolean negative = listPos < length && list.charAt(listPos) == '-';
+    
+    if (negative)
+      ++listPos;
+    
+    int start = listPos;
+    int value = 0;
+    
+    for (;  listPos < length;  ++listPos)
+    {
+      int digit = list.charAt(listPos) - '0';
+      
+      if (digit < 0 || digit > 9)
+        break;
+      
+      value = value * 10 + digit;
+    }
+    
+    if (listPos == start
+        || listPos < length && !Character.isWhitespace(list.charAt(listPos)))
+      throw new NumberFormatException("invalid number in \"" + list + "\"");
+    
+    return negative ? -value : value;
+  }
 }
@@ -0,0 +1,99 @@
+package openSess;
+
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+/**
+ * An interface for classes that hold a Solver together with the
+ * parameters for solution finding, so that their state can be
+ * reconstructed from an XML file by a SolverConstructor. It is
+ * implemented by the MainWindow and by the BatchSolver, which works
+ * without a GUI.
+ */
+public interface SolverOwner
+{
+  /**
+   * Returns the Solver.
+   *
+   * @return the Solver.
+   */
+  public Solver getSolver();
+
+  /**
+   * Replaces the Solver by a new one with the specified dimensions.
+   *
+   * @param topicNumber   the new number of topics.
+   * @param personNumber  the new number of persons.
+   * @param roleNumber    the new number of roles.
+   * @param sessionNumber the new number of sessions.
+   */
+  public void reconfigure(int topicNumber, int personNumber, int roleNumber,
+                          int sessionNumber);
+
+  /**
+   * Sets the parameters for solution finding.
+   *
+   * @param topicClusters     the number of topic clusterings to try.
+   * @param personAssignments the number of person assignments to try.
+   * @param attempts          the maximum number of assignment attempts.
+   * @param keepBest          the number of best solutions to keep in a list.
+   * @param threads           the number of threads used for the calculation.
+   * @param assignment        the person assignment method.
+   */
+  public void setSolutionParameters(int topicClusters, int personAssignments,
+                                    int attempts, int keepBest, int threads,
+                                    int assignment);
+
+  /**
+   * Sets the time budget of the calculation.
+   *
+   * @param timeBudget  the time budget in seconds, 0 for none.
+   */
+  public void setTimeBudget(int timeBudget);
+
+  /**
+   * Sets the optimality gap at which the calculation is stopped.
+   *
+   * @param stopGap  the gap in percent of the target value, 0 for never.
+   */
+  public void setStopGap(double stopGap);
+
+  /**
+   * Sets which solutions count as duplicates in the list of the best ones.
+   *
+   * @param distinct  Solver.DISTINCT_SOLUTION, DISTINCT_ASSIGNMENT or
+   *                  DISTINCT_GROUPING.
+   */
+  public void setDistinctSolutions(int distinct);
+
+  /**
+   * Sets the parameters of the simulated annealing search.
+   *
+   * @param schedule          Annealing.HILL_CLIMBING, GEOMETRIC or ADAPTIVE.
+   * @param startTemperature  the start temperature, 0 for automatic calibration.
+   * @param endTemperature    the end temperature, 0 for 1/1000 of the start.
+   * @param reheatAfter       the moves without improvement before reheating,
+   *                          0 for never.
+   */
+  public void setAnnealingParameters(int schedule, double startTemperature,
+                                     double endTemperature, int reheatAfter);
+}
@@ -0,0 +1,589 @@
+package openSess;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Hashtable;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+/**
+ * SolverService is a long-running HTTP service that solves OpenSess
+ * documents. The jobs are queued and solved by a BatchSolver each, at
+ * most a fixed number of them at the same time.
+ *
+ * Usage: java openSess.SolverService [-port n] [-host h] [-jobs n] [-threads n]
+ *                                     [-keepJobs n] [-keepMinutes n] [-maxDocument n]
+ *
+ * The service listens on localhost:8088 by default. A job that has ended
+ * is kept for 60 minutes (-keepMinutes), and of the ended jobs only the
+ * 100 that have ended last (-keepJobs); older ones are removed with their
+ * solutions. A document may have at most 16384 KB (-maxDocument), a larger
+ * one is rejected with 413. Requests:
+ *
+ *   POST   /jobs                 submit an openconclave document; the query
+ *                                may contain the options of the BatchSolver
+ *                                (e.g. ?attempts=50000&amp;budget=30). Returns
+ *                                the status of the new job (201).
+ *   GET    /jobs                 the status of all jobs.
+ *   GET    /jobs/id              the status of a job: its state (queued,
+ *                                running, done, canceled or failed), progress
+ *                                and best target value.
+ *   GET    /jobs/id/solutions    the openconclave document with the kept
+ *                                solutions of the job (409 while queued).
+ *   DELETE /jobs/id              cancel a queued or running job; the job
+ *                                keeps the solutions found so far. A job
+ *                                that has ended is removed.
+ */
+public class SolverService
+  implements HttpHandler
+{
+  private static final String QUEUED   = "queued";
+  private static final String RUNNING  = "running";
+  private static final String DONE     = "done";
+  private static final String CANCELED = "canceled";
+  private static final String FAILED   = "failed";
+
+  private ExecutorService queue;
+  private int             maxThreads;
+  private int             keepJobs;     // ended jobs that are kept
+  private long            keepMillis;   // time an ended job is kept
+  private int             maxDocument;  // bytes of a submitted document
+  private Hashtable       jobs = new Hashtable();
+  private int             lastId;
+
+  /**
+   * Constructs a new SolverService.
+   *
+   * @param parallelJobs the number of jobs solved at the same time.
+   * @param maxThreads   the maximum number of threads of each job.
+   * @param keepJobs     the maximum number of ended jobs that are kept.
+   * @param keepMinutes  the minutes for which an ended job is kept.
+   * @param maxDocument  the maximum size of a submitted document in KB.
+   */
+  public SolverService(int parallelJobs, int maxThreads, int keepJobs,
+                       int keepMinutes, int maxDocument)
+  {
+    this.queue       = Executors.newFixedThreadPool(parallelJobs);
+    this.maxThreads  = maxThreads;
+    this.keepJobs    = keepJobs;
+    this.keepMillis  = 60000L * keepMinutes;
+    this.maxDocument = 1024 * maxDocument;
+  }
+
+  /**
+   * Start the service.
+   *
+   * @param args the program arguments.
+   */
+  public static void main(String[] args)
+    throws IOException
+  {
+    Hashtable options = new Hashtable();
+
+    for (int i = 0;  i + 1 < args.length;  i += 2)
+      options.put(args[i].substring(1), args[i + 1]);
+
+    int processors = Runtime.getRuntime().availableProcessors();
+    int port       = getInt(options, "port", 8088);
+    int jobs       = Math.max(1, getInt(options, "jobs", processors));
+    int threads    = Math.max(1, getInt(options, "threads", Math.max(1, processors / jobs)));
+    int keepJobs   = Math.max(0, getInt(options, "keepJobs", 100));
+    int keepMins   = Math.max(0, getInt(options, "keepMinutes", 60));
+    int maxDoc     = Math.max(1, getInt(options, "maxDocument", 16384));
+    String host    = (String)options.get("host");
+
+    InetSocketAddress address = new InetSocketAddress(host == null
+                                                      ? InetAddress.getLoopbackAddress()
+                                                      : InetAddress.getByName(host),
+                                                      port);
+    HttpServer server = HttpServer.create(address, 0);
+
+    server.createContext("/jobs", new SolverService(jobs, threads, keepJobs,
+                                                    keepMins, maxDoc));
+    server.setExecutor(Executors.newFixedThreadPool(4));
+    server.start();
+
+    System.out.println("OpenSess solver service listening on " + address
+                       + " (" + jobs + " jobs, " + threads + " threads each)");
+  }
+
+  /**
+   * Handle a request (see the class description).
+   *
+   * @param exchange the request and its response.
+   */
+  public void handle(HttpExchange exchange)
+    throws IOException
+  {
+    try
+    {
+      expire();
+
+      String method = exchange.getRequestMethod();
+      String path[] = exchange.getRequestURI().getPath().split("/");
+      Job    job    = path.length > 2 ? (Job)jobs.get(path[2]) : null;
+
+      // path[0] is empty and path[1] is "jobs"
+      if (path.length == 2 && method.equals("POST"))
+        submit(exchange);
+      else if (path.length == 2 && method.equals("GET"))
+        respond(exchange, 200, "application/xml", listJobs());
+      else if (path.length > 2 && job == null)
+        respond(exchange, 404, "text/plain", "no such job\n");
+      else if (path.length == 3 && method.equals("GET"))
+        respond(exchange, 200, "application/xml", job.getStatus() + "\n");
+      else if (path.length == 3 && method.equals("DELETE"))
+        cancel(exchange, job);
+      else if (path.length == 4 && path[3].equals("solutions") && method.equals("GET"))
+        solutions(exchange, job);
+      else
+        respond(exchange, 405, "text/plain", "unsupported request\n");
+    }
+    catch (Exception e)
+    {
+      respond(exchange, 500, "text/plain", e + "\n");
+    }
+  }
+
+  /**
+   * Read a document and queue a job for it.
+   *
+   * @param exchange the request and its response.
+   */
+  private void submit(HttpExchange exchange)
+    throws IOException
+  {
+    BatchSolver solver = new BatchSolver();
+    byte        body[] = readBody(exchange, maxDocument);
+
+    if (body == null)
+    {
+      respond(exchange, 413, "text/plain", "document larger than "
+                                           + maxDocument / 1024 + " KB\n");
+      return;
+    }
+
+    try
+    {
+      solver.load(new ByteArrayInputStream(body));
+    }
+    catch (Exception e)
+    {
+      respond(exchange, 400, "text/plain", "cannot read document: " + e + "\n");
+      return;
+    }
+
+    Job job;
+
+    synchronized (this)
+    {
+      job = new Job(String.valueOf(++lastId), solver,
+                    parseQuery(exchange.getRequestURI().getRawQuery()));
+      jobs.put(job.id, job);
+    }
+
+    queue.execute(job);
+
+    exchange.getResponseHeaders().set("Location", "/jobs/" + job.id);
+    respond(exchange, 201, "application/xml", job.getStatus() + "\n");
+  }
+
+  /**
+   * Cancel a job, or remove it if it has ended.
+   *
+   * @param exchange the request and its response.
+   * @param job      the job.
+   */
+  private void cancel(HttpExchange exchange, Job job)
+    throws IOException
+  {
+    if (!job.cancel())
+      jobs.remove(job.id);
+
+    respond(exchange, 200, "application/xml", job.getStatus() + "\n");
+  }
+
+  /**
+   * Remove the jobs that have ended more than the retention time ago,
+   * and the oldest ended jobs beyond the number of ended jobs kept.
+   */
+  private synchronized void expire()
+  {
+    Vector ended = new Vector();
+    Vector all   = new Vector(jobs.values());
+    long   now   = System.currentTimeMillis();
+
+    for (int i = 0;  i < all.size();  ++i)
+    {
+      Job  job = (Job)all.elementAt(i);
+      long end = job.getEnded();
+
+      if (end == 0)
+        continue;
+
+      if (now - end > keepMillis)
+        jobs.remove(job.id);
+      else
+        ended.add(job);
+    }
+
+    while (ended.size() > keepJobs)
+    {
+      Job oldest = (Job)ended.elementAt(0);
+
+      for (int i = 1;  i < ended.size();  ++i)
+        if (((Job)ended.elementAt(i)).getEnded() < oldest.getEnded())
+          oldest = (Job)ended.elementAt(i);
+
+      ended.remove(oldest);
+      jobs.remove(oldest.id);
+    }
+  }
+
+  /**
+   * Return the document with the solutions of a job.
+   *
+   * @param exchange the request and its response.
+   * @param job      the job.
+   */
+  private void solutions(HttpExchange exchange, Job job)
+    throws IOException
+  {
+    if (job.getState() == QUEUED)
+    {
+      respond(exchange, 409, "text/plain", "job is queued\n");
+      return;
+    }
+
+    StringWriter document = new StringWriter();
+    PrintWriter  stream   = new PrintWriter(document);
+
+    // the solution list of the Solver is replaced as a whole when
+    // new solutions are published, so it can be saved while the job runs
+    job.solver.save(stream, 0);
+
+    stream.flush();
+    respond(exchange, 200, "application/xml", document.toString());
+  }
+
+  /**
+   * Return the status of all jobs.
+   *
+   * @return an XML document with the status of all jobs.
+   */
+  private String listJobs()
+  {
+    StringBuffer list = new StringBuffer("<jobs>\n");
+    Vector       all  = new Vector(jobs.values());
+
+    for (int i = 0;  i < all.size();  ++i)
+      list.append("  " + ((Job)all.elementAt(i)).getStatus() + "\n");
+
+    return list.append("</jobs>\n").toString();
+  }
+
+  /**
+   * Send a response.
+   *
+   * @param exchange    the request and its response.
+   * @param code        the HTTP status code.
+   * @param contentType the content type of the response.
+   * @param body        the body of the response.
+   */
+  private static void respond(HttpExchange exchange, int code, String contentType,
+                              String body)
+    throws IOException
+  {
+    byte bytes[] = body.getBytes("UTF-8");
+
+    exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=UTF-8");
+    exchange.sendResponseHeaders(code, bytes.length);
+
+    OutputStream out = exchange.getResponseBody();
+
+    out.write(bytes);
+    out.close();
+  }
+
+  /**
+   * Read the body of a request, unless it is larger than a limit.
+   * A declared length above the limit is rejected before reading.
+   *
+   * @param exchange the request and its response.
+   * @param limit    the maximum number of bytes.
+   * @return the body, or null if it is larger than the limit.
+   */
+  private static byte[] readBody(HttpExchange exchange, int limit)
+    throws IOException
+  {
+    InputStream in     = exchange.getRequestBody();
+    String      length = exchange.getRequestHeaders().getFirst("Content-Length");
+
+    if (length != null && Long.parseLong(length.trim()) > limit)
+    {
+      in.close();
+      return null;
+    }
+
+    ByteArrayOutputStream body   = new ByteArrayOutputStream();
+    byte                  buffer[] = new byte[8192];
+    int                   n;
+
+    while ((n = in.read(buffer)) > 0)
+    {
+      if (body.size() + n > limit)
+      {
+        in.close();
+        return null;
+      }
+
+      body.write(buffer, 0, n);
+    }
+
+    in.close();
+    return body.toByteArray();
+  }
+
+  /**
+   * Parse the query of a request into options (see BatchSolver.main()).
+   *
+   * @param query the raw query, or null.
+   * @return the options.
+   */
+  private static Hashtable parseQuery(String query)
+    throws IOException
+  {
+    Hashtable options = new Hashtable();
+
+    if (query == null)
+      return options;
+
+    String pairs[] = query.split("&");
+
+    for (int i = 0;  i < pairs.length;  ++i)
+    {
+      int eq = pairs[i].indexOf('=');
+
+      if (eq > 0)
+        options.put(URLDecoder.decode(pairs[i].substring(0, eq), "UTF-8"),
+                    URLDecoder.decode(pairs[i].substring(eq + 1), "UTF-8"));
+    }
+
+    return options;
+  }
+
+  /**
+   * Return the value of an option as an int.
+   *
+   * @param options the options.
+   * @param name    the name of the option.
+   * @param def     the default value.
+   * @return the value of the option or the default value.
+   */
+  private static int getInt(Hashtable options, String name, int def)
+  {
+    String value = (String)options.get(name);
+
+    return value == null ? def : Integer.parseInt(value);
+  }
+
+  /**
+   * Replace the characters that may not appear in an XML attribute.
+   *
+   * @param s a String.
+   * @return the String with the characters replaced by entities.
+   */
+  private static String escape(String s)
+  {
+    return s.replaceAll("&", "&amp;").replaceAll("<", "&lt;")
+            .replaceAll("\"", "&quot;").replaceAll("\n", " ");
+  }
+
+  /**
+   * A job of the service: a document solved by a BatchSolver.
+   */
+  private class Job
+    implements Runnable
+  {
+    String      id;
+    BatchSolver solver;
+    Hashtable   options;
+    String      state = QUEUED;
+    String      error;
+    boolean     canceled;
+    long        ended;   // time the job has ended, 0 while not ended
+
+    Job(String id, BatchSolver solver, Hashtable options)
+    {
+      this.id      = id;
+      this.solver  = solver;
+      this.options = options;
+    }
+
+    public void run()
+    {
+      if (!setState(QUEUED, RUNNING))
+        return;
+
+      ObjectName name = SolverTelemetry.register(solver.getSolver().getTelemetry(),
+                                                 "job " + id);
+
+      try
+      {
+        solver.solve(options, maxThreads);
+        setState(RUNNING, isCanceled() ? CANCELED : DONE);
+      }
+      catch (Exception e)
+      {
+        synchronized (this)
+        {
+          error = e.getMessage();
+        }
+
+        setState(RUNNING, FAILED);
+      }
+      finally
+      {
+        SolverTelemetry.unregister(name);
+      }
+    }
+
+    /**
+     * Cancel the job if it has not ended. A queued job is skipped
+     * when its turn comes.
+     *
+     * @return false if the job had ended already.
+     */
+    boolean cancel()
+    {
+      if (setState(QUEUED, CANCELED))
+        return true;
+
+      synchronized (this)
+      {
+        if (state != RUNNING)
+          return false;
+
+        canceled = true;
+      }
+
+      // the job may not have started its Solver yet
+      solver.getSolver().cancelTask();
+      return true;
+    }
+
+    synchronized boolean isCanceled()
+    {
+      return canceled;
+    }
+
+    synchronized String getState()
+    {
+      return state;
+    }
+
+    synchronized long getEnded()
+    {
+      return ended;
+    }
+
+    synchronized String getError()
+    {
+      return error;
+    }
+
+    /**
+     * Change the state if it is the expected one.
+     *
+     * @param expected the expected state.
+     * @param next     the new state.
+     * @return true if the state has been changed.
+     */
+    synchronized boolean setState(String expected, String next)
+    {
+      if (state != expected)
+        return false;
+
+      state = next;
+
+      if (next != QUEUED && next != RUNNING)
+        ended = System.currentTimeMillis();
+
+      return true;
+    }
+
+    /**
+     * Return the status of the job as an XML element.
+     *
+     * @return the status.
+     */
+    String getStatus()
+    {
+      String current = getState();
+      Solver s       = solver.getSolver();
+      String status  = "<job id=\"" + id + "\" state=\"" + current + "\"";
+
+      if (current != QUEUED)
+      {
+        status += " progress=\"" + s.getCurrent() + "\" maximum=\""
+                  + solver.getProgressMaximum() + "\" result=\""
+                  + escape(solver.getResult()) + "\"";
+
+        if (current == RUNNING && s.getMessage() != null)
+          status += " message=\"" + escape(s.getMessage()) + "\"";
+
+        SolverTelemetry t = s.getTelemetry();
+
+        status += " moves=\"" + t.getMovesEvaluated() + "\" accepted=\""
+                  + t.getMovesAccepted() + "\" improvements=\""
+                  + t.getImprovements() + "\" movesPerSecond=\""
+                  + Math.round(t.getMovesPerSecond()) + "\" currentTarget=\""
+                  + t.getCurrentTarget() + "\" bestTarget=\""
+                  + t.getBestTarget() + "\"";
+      }
+
+      String failure = getError();
+
+      if (failure != null)
+        status += " error=\"" + escape(failure) + "\"";
+
+      return status + "/>";
+    }
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package openSess;
+import java.lang.management.ManagementFactory;
+import java.text.NumberFormat;
+import java.util.Vector;
+
+import javax.management.ObjectName;
+
+/**
+ * SolverTelemetry collects the figures of the current calculation of
+ * a Solver: the annealing moves evaluated and accepted, the moves that
+ * improved the best assignment, the current and best target values,
+ * the course of the best target value over time and the time spent
+ * in each phase of the calculation.
+ *
+ * The AssignmentWorkers report their moves in batches, so that the
+ * annealing loop is not slowed down by the synchronization. The
+ * figures can be read from any thread; they are shown by the
+ * SolutionPanel and the SolverService and can be watched over JMX
+ * after register() has been called.
+ */
+public class SolverTelemetry
+  implements SolverTelemetryMBean
+{
+  public static final int CALC_PREFS   = 0;
+  public static final int CALC_DIST    = 1;
+  public static final int CREATE_GROUP = 2;
+  public static final int ASSIGN       = 3;
+  public static final int ROLES        = 4;
+  public static final int EVALUATE     = 5;
+
+  /** the names of the phases */
+  public static final String PHASE_NAMES[] =
+    { "calcPrefs", "calcDist", "createGroup", "assign", "roles", "evaluate" };
+
+  private boolean running;
+  private long    startMillis;
+  private long    endMillis;
+  private long    movesEvaluated;
+  private long    movesAccepted;
+  private long    improvements;
+  private long    rejected;
+  private int     currentTarget = -1;
+  private int     bestTarget    = -1;
+  private int     lowerBound    = -1;
+  private long    phaseNanos[]  = new long[PHASE_NAMES.length];
+  private long    phaseCount[]  = new long[PHASE_NAMES.length];
+  private Vector  bestCurve     = new Vector();   // long[] { millis, target }
+
+  /**
+   * Reset all figures at the start of a calculation.
+   */
+  synchronized void start()
+  {
+    running        = true;
+    startMillis    = System.currentTimeMillis();
+    endMillis      = startMillis;
+    movesEvaluated = 0;
+    movesAccepted  = 0;
+    improvements   = 0;
+    rejected       = 0;
+    currentTarget  = -1;
+    bestTarget     = -1;
+    lowerBound     = -1;
+    phaseNanos     = new long[PHASE_NAMES.length];
+    phaseCount     = new long[PHASE_NAMES.length];
+    bestCurve.removeAllElements();
+  }
+
+  /**
+   * Mark the end of a calculation.
+   */
+  synchronized void stop()
+  {
+    running   = false;
+    endMillis = System.currentTimeMillis();
+  }
+
+  /**
+   * Add the moves of an annealing search since its last report.
+   *
+   * @param evaluated    the number of moves evaluated.
+   * @param accepted     the number of moves accepted.
+   * @param improved     the number of moves that gave a new best assignment.
+   * @param target       the target value of the current assignment.
+   */
+  synchronized void addMoves(long evaluated, long accepted, long improved,
+                             int target)
+  {
+    movesEvaluated += evaluated;
+    movesAccepted  += accepted;
+    improvements   += improved;
+    currentTarget   = target;
+  }
+
+  /**
+   * Add the time of a phase.
+   *
+   * @param phase the phase (CALC_PREFS ... EVALUATE).
+   * @param nanos the time in nanoseconds (as System.nanoTime()).
+   */
+  synchronized void addPhase(int phase, long nanos)
+  {
+    phaseNanos[phase] += nanos;
+    ++phaseCount[phase];
+  }
+
+  /**
+   * Account for a new solution; if it is the best so far, its target
+   * value is added to the course of the best target value.
+   *
+   * @param target the target value of the solution.
+   */
+  synchronized void addSolution(int target)
+  {
+    if (bestTarget >= 0 && target >= bestTarget)
+      return;
+
+    bestTarget = target;
+    bestCurve.add(new long[] { System.currentTimeMillis() - startMillis, target });
+  }
+
+  /**
+   * Count a valid solution that was rejected before its evaluation,
+   * as it could not enter the list of the best solutions.
+   */
+  synchronized void addRejected()
+  {
+    ++rejected;
+  }
+
+  /**
+   * Set the lower bound of the target value.
+   *
+   * @param lowerBound the lower bound.
+   */
+  synchronized void setLowerBound(int lowerBound)
+  {
+    this.lowerBound = lowerBound;
+  }
+
+  public synchronized boolean isRunning()
+  {
+    return running;
+  }
+
+  public synchronized long getElapsedMillis()
+  {
+    return (running ? System.currentTimeMillis() : endMillis) - startMillis;
+  }
+
+  public synchronized long getMovesEvaluated()
+  {
+    return movesEvaluated;
+  }
+
+  public synchronized long getMovesAccepted()
+  {
+    return movesAccepted;
+  }
+
+  public synchronized long getImprovements()
+  {
+    return improvements;
+  }
+
+  public synchronized long getRejectedSolutions()
+  {
+    return rejected;
+  }
+
+  public synchronized double getAcceptanceRate()
+  {
+    return movesEvaluated == 0 ? 0 : (double)movesAccepted / movesEvaluated;
+  }
+
+  public synchronized double getMovesPerSecond()
+  {
+    return movesEvaluated * 1000.0 / Math.max(1, getElapsedMillis());
+  }
+
+  public synchronized int getCurrentTarget()
+  {
+    return currentTarget;
+  }
+
+  public synchronized int getBestTarget()
+  {
+    return bestTarget;
+  }
+
+  public synchronized int getLowerBound()
+  {
+    return lowerBound;
+  }
+
+  public String[] getPhaseNames()
+  {
+    return (String[])PHASE_NAMES.clone();
+  }
+
+  public synchronized long[] getPhaseMillis()
+  {
+    long millis[] = new long[PHASE_NAMES.length];
+
+    for (int i = 0;  i < millis.length;  ++i)
+      millis[i] = phaseNanos[i] / 1000000;
+
+    return millis;
+  }
+
+  public synchronized long[] getPhaseCounts()
+  {
+    return (long[])phaseCount.clone();
+  }
+
+  public synchronized long[] getBestTargetTimes()
+  {
+    long times[] = new long[bestCurve.size()];
+
+    for (int i = 0;  i < times.length;  ++i)
+      times[i] = ((long[])bestCurve.elementAt(i))[0];
+
+    return times;
+  }
+
+  public synchronized int[] getBestTargets()
+  {
+    int targets[] = new int[bestCurve.size()];
+
+    for (int i = 0;  i < targets.length;  ++i)
+      targets[i] = (int)((long[])bestCurve.elementAt(i))[1];
+
+    return targets;
+  }
+
+  /**
+   * Register the telemetry with the platform MBean server under the
+   * name "openSess:type=SolverTelemetry,name=&lt;name&gt;".
+   *
+   * @param telemetry the telemetry.
+   * @param name      the name which identifies the Solver.
+   * @return the name of the MBean, or null if it could not be registered.
+   */
+  static ObjectName register(SolverTelemetry telemetry, String name)
+  {
+    try
+    {
+      ObjectName objectName = new ObjectName("openSess:type=SolverTelemetry,name="
+                                             + ObjectName.quote(name));
+
+      ManagementFactory.getPlatformMBeanServer().registerMBean(telemetry, objectName);
+      return objectName;
+    }
+    catch (Exception e)
+    {
+      System.out.println("Cannot register the telemetry of " + name + ": " + e);
+      return null;
+    }
+  }
+
+  /**
+   * Remove an MBean registered by register().
+   *
+   * @param objectName the name of the MBean, may be null.
+   */
+  static void unregister(ObjectName objectName)
+  {
+    if (objectName == null)
+      return;
+
+    try
+    {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+    catch (Exception e)
+    {
+      System.out.println("Cannot unregister " + objectName + ": " + e);
+    }
+  }
+
+  /**
+   * Return a one-line summary of the annealing figures.
+   *
+   * @return the summary.
+   */
+  public synchronized String toString()
+  {
+    NumberFormat format = NumberFormat.getIntegerInstance();
+
+    return format.format(getMovesPerSecond()) + " moves/s, "
+           + Math.round(getAcceptanceRate() * 1000) / 10.0 + "% accepted, "
+           + format.format(improvements) + " improvements, current "
+           + (currentTarget < 0 ? "-" : String.valueOf(currentTarget))
+           + ", best "
+           + (bestTarget < 0 ? "-" : String.valueOf(bestTarget));
+  }
+}
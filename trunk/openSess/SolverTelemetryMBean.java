@@ -0,0 +1,146 @@
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package openSess;
+
+/**
+ * The management interface of SolverTelemetry, by which the figures
+ * of a calculation can be watched over JMX (e.g. with jconsole).
+ */
+public interface SolverTelemetryMBean
+{
+  /**
+   * Return whether a calculation is running.
+   *
+   * @return true if a calculation is running.
+   */
+  public boolean isRunning();
+
+  /**
+   * Return the time since the start of the calculation, or its
+   * duration if it has ended.
+   *
+   * @return the time in milliseconds.
+   */
+  public long getElapsedMillis();
+
+  /**
+   * Return the number of annealing moves evaluated.
+   *
+   * @return the number of moves.
+   */
+  public long getMovesEvaluated();
+
+  /**
+   * Return the number of annealing moves accepted.
+   *
+   * @return the number of moves.
+   */
+  public long getMovesAccepted();
+
+  /**
+   * Return the number of moves which gave a new best assignment
+   * in their annealing search.
+   *
+   * @return the number of moves.
+   */
+  public long getImprovements();
+
+  /**
+   * Return the number of valid solutions that were rejected without
+   * evaluation, as they could not enter the list of the best solutions.
+   *
+   * @return the number of solutions.
+   */
+  public long getRejectedSolutions();
+
+  /**
+   * Return the share of the evaluated moves that were accepted.
+   *
+   * @return the acceptance rate between 0 and 1.
+   */
+  public double getAcceptanceRate();
+
+  /**
+   * Return the number of moves evaluated per second of the calculation.
+   *
+   * @return the number of moves per second.
+   */
+  public double getMovesPerSecond();
+
+  /**
+   * Return the target value of the last assignment reported by
+   * an annealing search.
+   *
+   * @return the target value, -1 if there is none.
+   */
+  public int getCurrentTarget();
+
+  /**
+   * Return the target value of the best solution found.
+   *
+   * @return the target value, -1 if there is none.
+   */
+  public int getBestTarget();
+
+  /**
+   * Return the lower bound of the target value.
+   *
+   * @return the lower bound, -1 if it is not calculated yet.
+   */
+  public int getLowerBound();
+
+  /**
+   * Return the names of the phases of the calculation.
+   *
+   * @return the names.
+   */
+  public String[] getPhaseNames();
+
+  /**
+   * Return the time spent in each phase, summed over all threads.
+   *
+   * @return the times in milliseconds, in the order of getPhaseNames().
+   */
+  public long[] getPhaseMillis();
+
+  /**
+   * Return how often each phase has been run.
+   *
+   * @return the counts, in the order of getPhaseNames().
+   */
+  public long[] getPhaseCounts();
+
+  /**
+   * Return the times at which the best target value improved.
+   *
+   * @return the times in milliseconds since the start.
+   */
+  public long[] getBestTargetTimes();
+
+  /**
+   * Return the best target values at the times of getBestTargetTimes().
+   *
+   * @return the target values.
+   */
+  public int[] getBestTargets();
+}
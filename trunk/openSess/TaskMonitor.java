@@ -21,6 +21,10 @@
  */
 package openSess;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 /**
  * TaskMonitor is a base class for classes that must perform
  * a task in a different (non-GUI) thread. The task progress can
@@ -30,21 +34,45 @@ package openSess;
  * 
  * - Redefine doTask() to contain the work to be done in the
  *   new thread.
- * - Check taskWasCanceled() frequently to see whether the task
- *   was canceled from the outside (e.g. by the GUI user). If this
- *   is the case, doTask() should terminate as soon as possible.
+ * - Call checkPoint() frequently, also in long inner loops. It waits
+ *   while the task is paused and returns true if the task was canceled
+ *   from the outside (e.g. by the GUI user). In this case doTask()
+ *   should terminate as soon as possible.
  * - Call setCurrent() whenever there is progress to report. The value
  *   passed to setCurrent() should be appropriate for the ProgressMonitor.
  * - Call setMessage() with progress messages if appropriate.
  * 
+ * The tasks run on a thread pool which is shared by all TaskMonitors,
+ * so several tasks (of different Solvers) can run at the same time.
+ * The state of a task is kept in volatile fields, as it is read and
+ * written by the GUI thread and the task thread.
+ * 
  * @author andreas
  */
 public class TaskMonitor
 {
-  private int              current      = 0;
-  private boolean          taskDone     = false;
-  private boolean          taskCanceled = false;
-  private String           statMessage;
+  private static ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory()
+  {
+    private int count;
+    
+    public synchronized Thread newThread(Runnable r)
+    {
+      Thread thread = new Thread(r, "OpenSess task " + ++count);
+      
+      // the tasks must not keep the program from exiting
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+  
+  private volatile int     current      = 0;
+  private volatile boolean taskRunning  = false;
+  private volatile boolean taskDone     = false;
+  private volatile boolean taskCanceled = false;
+  private volatile boolean taskPaused   = false;
+  private boolean          cancelNext   = false;  // cancelTask() before begin()
+  private volatile String  statMessage;
+  private final Object     pauseLock    = new Object();
   
   /**
    * Return the current progress.
@@ -69,11 +97,26 @@ public class TaskMonitor
   
   /**
    * Can be used to cancel the task from the outside.
+   * A paused task is resumed, so that it can terminate.
    */
   public void stop()
   {
     taskCanceled = true;
     statMessage = null;
+    resume();
+  }
+
+  /**
+   * Cancel the running task, or the next one if it has not been
+   * started yet. Unlike stop(), this is not lost if the task is about
+   * to be started, e.g. by a thread that prepares it.
+   */
+  public synchronized void cancelTask()
+  {
+    if (!taskRunning)
+      cancelNext = true;
+    
+    stop();
   }
 
   /**
@@ -86,6 +129,65 @@ public class TaskMonitor
     return taskCanceled;
   }
 
+  /**
+   * Pause the task at its next call of checkPoint().
+   */
+  public void pause()
+  {
+    taskPaused = true;
+  }
+  
+  /**
+   * Continue a paused task.
+   */
+  public void resume()
+  {
+    synchronized (pauseLock)
+    {
+      taskPaused = false;
+      pauseLock.notifyAll();
+    }
+  }
+  
+  /**
+   * Returns whether the task is paused (or will pause at its next
+   * call of checkPoint()).
+   * 
+   * @return true if the task is paused.
+   */
+  public boolean isPaused()
+  {
+    return taskPaused;
+  }
+  
+  /**
+   * Wait while the task is paused and return whether it was canceled.
+   * This should be called by the task frequently.
+   * 
+   * @return true if the task has been canceled.
+   */
+  protected boolean checkPoint()
+  {
+    if (taskPaused)
+    {
+      synchronized (pauseLock)
+      {
+        try
+        {
+          while (taskPaused && !taskCanceled)
+            pauseLock.wait();
+        }
+        catch (InterruptedException e)
+        {
+          taskCanceled = true;
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+    
+    return taskCanceled;
+  }
+  
   /**
    * Returns whether the task has completed (by itself).
    * 
@@ -96,6 +198,16 @@ public class TaskMonitor
     return taskDone;
   }
 
+  /**
+   * Returns whether the task has been started and is not yet completed.
+   * 
+   * @return true if the task is running.
+   */
+  public boolean isRunning()
+  {
+    return taskRunning;
+  }
+  
   /**
    * Returns the most recent status message, or null
    * if there is no current status message.
@@ -118,25 +230,60 @@ public class TaskMonitor
   }
   
   /**
-   * Start the task: Call the method doTask() in its own thread.
+   * Start the task: Call the method doTask() in a thread of the pool.
+   * The state is reset before this method returns, so isDone() does
+   * not report an earlier task.
+   * 
+   * @throws IllegalStateException if the task is already running.
    */
   public void startTask()
   {
-    final TaskMonitor theMonitorItself = this;
-    
-    final SwingWorker worker = new SwingWorker()
+    begin();
+    executor.execute(new Runnable()
     {
-      public Object construct()
+      public void run()
       {
-        current = 0;
-        taskDone = false;
-        taskCanceled = false;
-        statMessage = null;
-        return new SolverTask(theMonitorItself); 
+        try
+        {
+          doTask();
+        }
+        finally
+        {
+          end();
+        }
       }
-    };
+    });
+  }
+
+  /**
+   * Run other work than a task on the thread pool of the tasks, e.g. a
+   * calculation that must not block the GUI thread.
+   * 
+   * @param work the work to run.
+   */
+  static void execute(Runnable work)
+  {
+    executor.execute(work);
+  }
+
+  /**
+   * Perform the task in the current thread and return when it is
+   * completed. This is used where there is no GUI to keep responsive.
+   * 
+   * @throws IllegalStateException if the task is already running.
+   */
+  public void runTask()
+  {
+    begin();
     
-    worker.start();
+    try
+    {
+      doTask();
+    }
+    finally
+    {
+      end();
+    }
   }
 
   /**
@@ -148,26 +295,29 @@ public class TaskMonitor
   }
 
   /**
-   * SolverTask wraps the actual work to do in a way that is
-   * compatible with the SwingWorker.
-   * 
-   * @author andreas
-   */
-  private class SolverTask
-  {
-    /**
-     * The constructor contains the actual work to do
-     * (which is our solution calculation).
-     * 
-     * @param solver the Solver object.
-     * @param dimTryTopicClustering  the number of topic clusterings to try.
-     * @param dimTryPersonAssignment the number of topic/person assignments to try.
-     * @param dimTryAlloc            the maximum number of assignments to try.
-     */
-    public SolverTask(TaskMonitor monitor)
-    {
-      monitor.doTask();
-      monitor.taskDone = true;
-    }
-  };
+   * Reset the state at the start of the task. A task for which
+   * cancelTask() has been called already starts canceled.
+   */
+  private synchronized void begin()
+  {
+    if (taskRunning)
+      throw new IllegalStateException("the task is already running");
+    
+    current      = 0;
+    taskRunning  = true;
+    taskDone     = false;
+    taskCanceled = cancelNext;
+    cancelNext   = false;
+    taskPaused   = false;
+    statMessage  = null;
+  }
+
+  /**
+   * Mark the task as completed, also if it has failed.
+   */
+  private synchronized void end()
+  {
+    taskDone    = true;
+    taskRunning = false;
+  }
 }
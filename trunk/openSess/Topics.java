@@ -1,6 +1,7 @@
 
 package openSess;
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Random;
 import java.util.Vector;
@@ -106,13 +107,17 @@ public class Topics
 
   /**
    * Summarize the preferences of all persons for each topic.
+   * 
+   * @param problem the Problem to solve.
    */
-  protected void calcPrefs()
+  protected void calcPrefs(Problem problem)
   {
     boolean debug = false;
-    int dimTopics = getNumber();
-    int dimPersons = solver.getPersons().getNumber();
+    int dimTopics = problem.getTopicNumber();
+    int dimPersons = problem.getPersonNumber();
     
+    int column[] = problem.getPreferenceColumns();
+
     pref = new int[dimTopics];
     
     for (int t = 0;  t < dimTopics;  t++)
@@ -120,11 +125,11 @@ public class Topics
       pref[t] = 0;
       for (int p = 0; p < dimPersons; p++)
       {
-        pref[t] += solver.getPersons().getPreference(p, t);
+        pref[t] += column[t*dimPersons + p];
         
         if (debug)
           System.out.println("Thema " + getName(t) + " pref+="
-                             + solver.getPersons().getPreference(p, t));
+                             + column[t*dimPersons + p]);
       }
     }
 
@@ -165,12 +170,13 @@ public class Topics
    * To emphasize differences we sum the square of the difference in ranking
    * for each person.
    * 
-   * @param persons the Persons object.
+   * @param problem the Problem to solve.
    */
-  protected void calcDist(Persons persons)
+  protected void calcDist(Problem problem)
   {
-    int dimTopics = getNumber();
-    int dimPersons = solver.getPersons().getNumber();
+    int dimTopics = problem.getTopicNumber();
+    int dimPersons = problem.getPersonNumber();
+    int column[] = problem.getPreferenceColumns();
     
     for (int t = 0;  t < dimTopics;  t++)
     {
@@ -183,9 +189,10 @@ public class Topics
         else
         {
           int sum = 0, dif;
+          int a = t*dimPersons, b = tt*dimPersons;
           for (int p = 0;  p < dimPersons;  p++)
           {
-            dif = persons.getPreference(p, t) - persons.getPreference(p, tt);
+            dif = column[a + p] - column[b + p];
             sum += dif * dif;
           }
           dist[tt][t] = dist[t][tt] = sum;
@@ -194,25 +201,6 @@ public class Topics
     }
   }
 
-  /**
-   * Calculate a simple hash value for a clustering vector.
-   * See createGroup(), where this is used to identify solutions which
-   * have been investigated earlier.
-   * 
-   * @param vec a clustering vector.
-   * @return the hash value.
-   */
-  protected int hashSum(int vec[])
-  {
-    int hashVal = 0;
-    int dimTopics = getNumber();
-    
-    for (int n = 0; n < vec.length; n++)
-      hashVal += (n + 1) * dimTopics * (vec[n] + 1) * (vec[n] + 1);
-
-    return hashVal;
-  }
-
   /**
    * Create a topic cluster.
    * 
@@ -230,18 +218,13 @@ public class Topics
 
     // we get a vector with solutions which have been investigated before
     // we do not want to reproduce these solutions and will identify
-    // them by a hash value (and skip them) later during the search process
-    int[] oldVecHashSum = new int[forbidden.size()];
+    // them by a Zobrist hash value (and skip them) later during the 
+    // search process
+    LongHashSet known = new LongHashSet();
     Iterator iter = forbidden.iterator();
-    int oldVec[];
-    int f = 0, hashVal;
+
     while (iter.hasNext())
-    {
-      oldVec = (int[]) iter.next();
-      oldVecHashSum[f] = hashVal = hashSum(oldVec);
-      // System.out.println("hashval("+f+")="+hashVal);
-      f += 1;
-    }
+      known.add(Zobrist.grouping((int[]) iter.next()));
 
     // we work on an array which contains a "group" number for each topic
     // topics with identical group numbers run in parallel sessions.
@@ -249,14 +232,13 @@ public class Topics
     // it is useful to "normalize" the grouping, i.e. starting with group
     // 0,1,2, ..
 
-    // we start with a simple initial grouping
-    int n = getNumber();
-    int vec[] = new int[n];
-    int bestVec[] = new int[n];
-    for (int i = 0; i < n; i++)
-    {
-      vec[i] = bestVec[i] = i / groupSize;
-    }
+    // we start with a simple initial grouping;
+    // the grouping is kept in a Clustering which updates the separation
+    // value incrementally when two topics are swapped
+    int n = dist.length;
+    Clustering clustering = new Clustering(n, groupSize);
+    int vec[] = clustering.vec;
+    int bestVec[] = (int[]) vec.clone();
 
     Random rand = new Random();
     if (seed != 0)
@@ -272,9 +254,14 @@ public class Topics
 
     for (int t = 0; t < tries; t++)
     {
-
-      // we swap two topics by random, creating a new, normalized grouping
-      int a = 0, b = 1, x;
+      // a paused task waits here, a canceled one keeps the best
+      // grouping found so far
+      if ((t & 1023) == 1023 && solver.checkPoint())
+        break;
+
+      // we swap two topics by random; the grouping is normalized
+      // only when it is recorded
+      int a = 0, b = 1;
       for (int z = 0; z < 10; z++)
       {
         a = rand.nextInt(n);
@@ -282,13 +269,9 @@ public class Topics
         if (vec[a] != vec[b])
           break;
       }
-      x = vec[a];
-      vec[a] = vec[b];
-      vec[b] = x;
-      normalize(vec);
 
       // we calculate the new separation value
-      sep = separation(vec, groupSize);
+      sep = clustering.swap(a, b);
 
       if (debug)
       {
@@ -300,20 +283,11 @@ public class Topics
 
       // if it is better than all other values and if the solution
       // is a new one, we store the value and the solution
-      if (sep > bestSepTotal)
+      if (sep > bestSepTotal && !known.contains(clustering.hash))
       {
-        int thisHashSum = hashSum(vec);
-        boolean known = false;
-        for (int i = 0; i < oldVecHashSum.length; i++)
-        {
-          if (known = (oldVecHashSum[i] == thisHashSum))
-            break;
-        }
-        if (!known)
-        {
-          bestSepTotal = sep;
-          bestVec = (int[]) vec.clone();
-        }
+        bestSepTotal = sep;
+        bestVec = (int[]) vec.clone();
+        normalize(bestVec);
       }
 
       // now we compare with the current threshold ("bestSep")
@@ -322,9 +296,7 @@ public class Topics
         if (rand.nextInt(100) >= 90)
         {
           // disregard improved result
-          x = vec[b];
-          vec[b] = vec[a];
-          vec[a] = x;
+          clustering.swap(a, b);
           if (debug)
             System.out.println("better, but staying.");
         }
@@ -341,9 +313,7 @@ public class Topics
         // disregard result as it is worse
         if (rand.nextInt(100) >= 10)
         {
-          x = vec[b];
-          vec[b] = vec[a];
-          vec[a] = x;
+          clustering.swap(a, b);
           if (debug)
             System.out.println("worse, staying");
         }
@@ -374,24 +344,18 @@ public class Topics
    */
   protected void normalize(int vec[])
   {
-    int dimTopics = getNumber();
+    int map[] = new int[vec.length];
     int gr = 0;
     
-    for (int t = 0; t < dimTopics; t++)
+    Arrays.fill(map, -1);
+    
+    for (int t = 0; t < vec.length; t++)
     {
-      if (vec[t] >= 100)
-        continue;
-      int vOld = vec[t];
-      vec[t] = 100 + gr;
-      for (int tt = t + 1; tt < dimTopics; tt++)
-      {
-        if (vec[tt] == vOld)
-          vec[tt] = 100 + gr;
-      }
-      gr += 1;
+      if (map[vec[t]] < 0)
+        map[vec[t]] = gr++;
+      
+      vec[t] = map[vec[t]];
     }
-    for (int t = 0; t < dimTopics; t++)
-      vec[t] -= 100;
   }
 
   /**
@@ -451,6 +415,137 @@ public class Topics
     return sep;
   }
 
+  /**
+   * Clustering holds a grouping of topics for createGroup() together
+   * with the members of each group and the distance sum of each group,
+   * so that the separation value can be updated with O(groupSize) work
+   * when two topics are swapped. The group numbers in vec are not
+   * normalized.
+   */
+  private class Clustering
+  {
+    int vec[];      // the group number of each topic
+    int member[];   // the topics of group g at g*groupSize...
+    int pos[];      // the position of each topic in member[]
+    int gsep[];     // the sum of distances within each group
+    int sep;        // the separation value
+    long groupKey[]; // the XOR of the topic keys of each group
+    long hash;      // the Zobrist hash of the grouping
+    int groupSize;
+
+    /**
+     * Creates the initial grouping 0,0,..,1,1,.. for n topics. If n is
+     * not a multiple of groupSize, the last group is smaller.
+     * 
+     * @param n         the number of topics.
+     * @param groupSize the size of each group.
+     */
+    Clustering(int n, int groupSize)
+    {
+      int gCount = (n + groupSize - 1) / groupSize;
+      
+      this.groupSize = groupSize;
+      vec    = new int[n];
+      member = new int[n];
+      pos    = new int[n];
+      gsep   = new int[gCount];
+      sep    = 0;
+      groupKey = new long[gCount];
+
+      for (int i = 0; i < n; i++)
+      {
+        vec[i] = i / groupSize;
+        member[i] = i;
+        pos[i] = i;
+        groupKey[vec[i]] ^= Zobrist.topicKey(i);
+      }
+
+      hash = Zobrist.grouping(vec);
+
+      for (int gr = 0; gr < gCount; gr++)
+      {
+        int start = gr * groupSize;
+        int end   = Math.min(start + groupSize, n);
+
+        for (int g = start; g < end - 1; g++)
+          for (int gg = g + 1; gg < end; gg++)
+            gsep[gr] += dist[member[g]][member[gg]];
+
+        sep += gsep[gr] * gsep[gr];
+      }
+    }
+
+    /**
+     * Swap the groups of two topics. Calling swap() again with the
+     * same topics restores the previous grouping.
+     * 
+     * @param a the first topic.
+     * @param b the second topic.
+     * @return the separation value of the new grouping.
+     */
+    int swap(int a, int b)
+    {
+      int ga = vec[a];
+      int gb = vec[b];
+
+      if (ga == gb)
+        return sep;
+
+      int sa = gsep[ga] + delta(ga, a, b);
+      int sb = gsep[gb] + delta(gb, b, a);
+
+      sep += sa * sa + sb * sb - gsep[ga] * gsep[ga] - gsep[gb] * gsep[gb];
+      gsep[ga] = sa;
+      gsep[gb] = sb;
+
+      int pa = pos[a];
+      int pb = pos[b];
+
+      // the hash changes only for the two groups involved
+      long keys = Zobrist.topicKey(a) ^ Zobrist.topicKey(b);
+
+      hash -= Zobrist.mix(groupKey[ga]) + Zobrist.mix(groupKey[gb]);
+      groupKey[ga] ^= keys;
+      groupKey[gb] ^= keys;
+      hash += Zobrist.mix(groupKey[ga]) + Zobrist.mix(groupKey[gb]);
+
+      member[pa] = b;
+      member[pb] = a;
+      pos[a] = pb;
+      pos[b] = pa;
+      vec[a] = gb;
+      vec[b] = ga;
+
+      return sep;
+    }
+
+    /**
+     * Return the change of the distance sum of a group if one of
+     * its topics is replaced by another topic.
+     * 
+     * @param gr      the group.
+     * @param leaving the topic that leaves the group.
+     * @param joining the topic that joins the group.
+     * @return the change of the distance sum.
+     */
+    private int delta(int gr, int leaving, int joining)
+    {
+      int start = gr * groupSize;
+      int end   = Math.min(start + groupSize, member.length);
+      int d = 0;
+
+      for (int g = start; g < end; g++)
+      {
+        int m = member[g];
+
+        if (m != leaving)
+          d += dist[joining][m] - dist[leaving][m];
+      }
+
+      return d;
+    }
+  }
+
   /**
    * Return the matrix of topic distances.
    * 
@@ -548,4 +643,4 @@ public class Topics
     
     Indenter.println(stream, level, "</topics>");
   }
-}
\ No newline at end of file
+}
\ No newline at end of file
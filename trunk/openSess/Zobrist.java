@@ -0,0 +1,124 @@
+/*
+ * Copyright 2005 Gero Scholz, Andreas Wickner
+ *
+ * Created:     2026-10-17
+ * Revision ID: $Id$
+ *
+ * This file is part of OpenSess.
+ * OpenSess is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * OpenSess is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with OpenSess; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package openSess;
+
+/**
+ * Zobrist provides the 64 bit hash values used to recognize topic
+ * groupings and person assignments that have been seen before.
+ *
+ * Every element of a state (a topic, or a person attending a topic)
+ * has a pseudo random key, and the hash of a state is the XOR of the
+ * keys of its elements. A swap therefore changes the hash by XORing
+ * the keys of the elements that leave and join, in constant time.
+ *
+ * The group numbers of a topic grouping are arbitrary, so a grouping
+ * is hashed as a set of groups: the hash of each group (the XOR of its
+ * topic keys) is mixed and the results are added up. This does not
+ * depend on the numbering of the groups and can still be updated for
+ * the two groups involved in a swap.
+ *
+ * The keys are not stored in tables but calculated from the index of
+ * the element by the SplitMix64 function.
+ */
+class Zobrist
+{
+  /** offset of the keys of persons attending topics */
+  private static final long ATTENDANCE = 1L << 40;
+
+  /**
+   * Return the key of a topic.
+   *
+   * @param topic the topic.
+   * @return the key.
+   */
+  static long topicKey(int topic)
+  {
+    return mix(topic);
+  }
+
+  /**
+   * Return the key of a person attending a topic.
+   *
+   * @param person    the person.
+   * @param topic     the topic.
+   * @param dimTopics the number of topics.
+   * @return the key.
+   */
+  static long attendanceKey(int person, int topic, int dimTopics)
+  {
+    return mix(ATTENDANCE + (long)person * dimTopics + topic);
+  }
+
+  /**
+   * Return the key of a role taken by a person attending a topic.
+   *
+   * @param attendanceKey the key of the attendance (see attendanceKey()).
+   * @param role          the role.
+   * @return the key.
+   */
+  static long roleKey(long attendanceKey, int role)
+  {
+    return mix(attendanceKey + role);
+  }
+
+  /**
+   * Return the hash of a topic grouping.
+   *
+   * @param vec the group number of each topic.
+   * @return the hash value.
+   */
+  static long grouping(int vec[])
+  {
+    int gCount = 0;
+
+    for (int t = 0;  t < vec.length;  ++t)
+      gCount = Math.max(gCount, vec[t] + 1);
+
+    long groupKey[] = new long[gCount];
+    long hash = 0;
+
+    for (int t = 0;  t < vec.length;  ++t)
+      groupKey[vec[t]] ^= topicKey(t);
+
+    for (int g = 0;  g < gCount;  ++g)
+      hash += mix(groupKey[g]);
+
+    return hash;
+  }
+
+  /**
+   * The SplitMix64 finalizer: a bijective mixing function which
+   * turns consecutive values into well distributed ones.
+   *
+   * @param value the value to mix.
+   * @return the mixed value.
+   */
+  static long mix(long value)
+  {
+    long z = value + 0x9E3779B97F4A7C15L;
+
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}